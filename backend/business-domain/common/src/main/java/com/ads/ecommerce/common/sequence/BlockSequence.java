@@ -0,0 +1,71 @@
+package com.ads.ecommerce.common.sequence;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reparte desde memoria, sin bloqueos, los valores de bloques reservados con
+ * {@link SequenceBlockAllocator} (hi/lo). Solo vuelve a la base de datos al
+ * agotar el bloque de una secuencia.
+ */
+@Slf4j
+public class BlockSequence {
+    
+    private final SequenceBlockAllocator allocator;
+    private final int blockSize;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+    
+    public BlockSequence(SequenceBlockAllocator allocator, int blockSize) {
+        this.allocator = allocator;
+        this.blockSize = blockSize;
+    }
+    
+    /**
+     * Siguiente valor de la secuencia; lastUsed da el último valor ya emitido
+     * por si hay que crearla.
+     */
+    public long next(String name, LongSupplier lastUsed) {
+        while (true) {
+            Block block = blocks.get(name);
+            if (block != null) {
+                long value = block.next.getAndIncrement();
+                if (value < block.end) {
+                    return value;
+                }
+            }
+            refill(name, block, lastUsed);
+        }
+    }
+    
+    /**
+     * Olvida los bloques de las secuencias que ya no se usan (p. ej. las de
+     * años anteriores); sus valores sin repartir se pierden.
+     */
+    public void retainOnly(Predicate<String> inUse) {
+        blocks.keySet().removeIf(inUse.negate());
+    }
+    
+    private synchronized void refill(String name, Block exhausted, LongSupplier lastUsed) {
+        if (blocks.get(name) != exhausted) {
+            return;  // Otro hilo ya reservó un bloque nuevo
+        }
+        long start = allocator.allocate(name, blockSize, lastUsed);
+        blocks.put(name, new Block(start, start + blockSize));
+        log.info("Sequence {} block reserved: [{}, {})", name, start, start + blockSize);
+    }
+    
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+        
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.ads.ecommerce.common.sequence;
+
+import java.util.function.LongSupplier;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reserva bloques de valores de una tabla de secuencias (una fila por
+ * secuencia, columnas name y next_value), cada reserva en su propia transacción.
+ *
+ * La reserva es un UPDATE atómico sobre una fila que ya existe. Si la fila
+ * falta se crea antes con un INSERT aparte: bloquear primero una fila que no
+ * existe (SELECT ... FOR UPDATE) toma en MySQL un gap lock compatible entre
+ * transacciones, y dos instancias que después insertan la misma fila se
+ * bloquean mutuamente (deadlock).
+ */
+@Slf4j
+public class SequenceBlockAllocator {
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String reserveSql;
+    private final String currentSql;
+    private final String createSql;
+    
+    public SequenceBlockAllocator(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  String table) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.reserveSql = "UPDATE " + table + " SET next_value = next_value + ? WHERE name = ?";
+        this.currentSql = "SELECT next_value FROM " + table + " WHERE name = ?";
+        this.createSql = "INSERT INTO " + table + " (name, next_value) VALUES (?, ?)";
+    }
+    
+    /**
+     * Reserva [inicio, inicio + size) y devuelve el inicio.
+     * Si la secuencia no existe se crea a partir de lastUsed (último valor ya emitido).
+     */
+    public long allocate(String name, int size, LongSupplier lastUsed) {
+        Long start = reserve(name, size);
+        if (start == null) {
+            create(name, lastUsed.getAsLong() + 1);
+            start = reserve(name, size);
+            if (start == null) {
+                throw new IllegalStateException("No se pudo crear la secuencia " + name);
+            }
+        }
+        
+        log.debug("Sequence {} block reserved: [{}, {})", name, start, start + size);
+        return start;
+    }
+    
+    /**
+     * El UPDATE bloquea la fila hasta el commit; la lectura posterior en la
+     * misma transacción ve el valor propio. Devuelve null si la fila no existe.
+     */
+    private Long reserve(String name, int size) {
+        return transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(reserveSql, size, name) == 0) {
+                return null;
+            }
+            return jdbcTemplate.queryForObject(currentSql, Long.class, name) - size;
+        });
+    }
+    
+    private void create(String name, long firstValue) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.update(createSql, name, firstValue));
+            log.info("Sequence {} created starting at {}", name, firstValue);
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia la creó a la vez; se reserva sobre la suya
+            log.debug("Sequence {} already created by another instance", name);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.ads.ecommerce.common.sequence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+class BlockSequenceTest {
+    
+    private JdbcTemplate jdbcTemplate;
+    private SequenceBlockAllocator allocator;
+    
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource =
+            new DriverManagerDataSource("jdbc:h2:mem:sequences;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE sequences (name VARCHAR(50) PRIMARY KEY, next_value BIGINT NOT NULL)");
+        allocator = new SequenceBlockAllocator(jdbcTemplate, new DataSourceTransactionManager(dataSource), "sequences");
+    }
+    
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE sequences");
+    }
+    
+    @Test
+    void missingSequenceIsCreatedAfterTheLastUsedValue() {
+        assertThat(allocator.allocate("ORD-2026", 50, () -> 120)).isEqualTo(121);
+        assertThat(allocator.allocate("ORD-2026", 50, () -> 0)).isEqualTo(171);
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT next_value FROM sequences WHERE name = 'ORD-2026'", Long.class)).isEqualTo(221);
+    }
+    
+    @Test
+    void concurrentFirstAllocationsReserveDisjointBlocks() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Long>> calls = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                calls.add(() -> allocator.allocate("REG-2026", 20, () -> 0));
+            }
+            List<Long> starts = new ArrayList<>();
+            for (Future<Long> start : executor.invokeAll(calls)) {
+                starts.add(start.get());
+            }
+            
+            assertThat(starts).containsExactlyInAnyOrder(1L, 21L, 41L, 61L, 81L, 101L, 121L, 141L);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    void valuesAreUniqueAcrossThreadsAndSequences() throws Exception {
+        BlockSequence sequence = new BlockSequence(allocator, 7);
+        Set<String> issued = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Callable<Void>> calls = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                String name = i % 2 == 0 ? "VIP-2026" : "REG-2026";
+                calls.add(() -> {
+                    for (int n = 0; n < 100; n++) {
+                        issued.add(name + "-" + sequence.next(name, () -> 0));
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> call : executor.invokeAll(calls)) {
+                call.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        assertThat(issued).hasSize(600)
+            .contains("VIP-2026-1", "VIP-2026-300", "REG-2026-1", "REG-2026-300");
+    }
+    
+    @Test
+    void retainedSequencesKeepTheirBlock() {
+        BlockSequence sequence = new BlockSequence(allocator, 10);
+        assertThat(sequence.next("ORD-2025", () -> 0)).isEqualTo(1);
+        assertThat(sequence.next("ORD-2026", () -> 0)).isEqualTo(1);
+        
+        sequence.retainOnly(name -> name.endsWith("-2026"));
+        
+        assertThat(sequence.next("ORD-2026", () -> 0)).isEqualTo(2);
+        assertThat(sequence.next("ORD-2025", () -> 0)).isEqualTo(11);
+    }
+}
@@ -0,0 +1,25 @@
+package com.ads.ecommerce.customer.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Formato binario Smile (application/x-jackson-smile) para las llamadas entre servicios.
+ * Se negocia por Accept/Content-Type: order-service lo pide y los clientes
+ * externos, que aceptan JSON, siguen recibiendo JSON.
+ * El mapper se crea con el builder de Spring Boot para aplicar la misma
+ * configuración spring.jackson.* que el JSON.
+ */
+@Configuration
+public class SmileConfig {
+    
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(
+            builder.createXmlMapper(false).factory(new SmileFactory()).build());
+    }
+}
@@ -15,8 +15,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.ads.ecommerce.customer.dto.CursorPage;
 import com.ads.ecommerce.customer.dto.CustomerRequest;
 import com.ads.ecommerce.customer.dto.CustomerResponse;
+import com.ads.ecommerce.customer.dto.ListView;
 import com.ads.ecommerce.customer.service.CustomerService;
 
 import jakarta.validation.Valid;
@@ -48,14 +50,42 @@ public class CustomerController {
     }
 
     @GetMapping
-    public ResponseEntity<List<CustomerResponse>> getAllCustomers(
-            @RequestParam(required = false) Boolean active) {
-        log.info("GET /api/v1/customers?active={}", active);
+    public ResponseEntity<CursorPage<?>> getAllCustomers(
+            @RequestParam(required = false) Boolean active,
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String view) {
+        log.info("GET /api/v1/customers?active={}&ids={}&cursor={}&size={}&view={}", active, ids, cursor, size, view);
+
+        boolean summary = ListView.from(view) == ListView.SUMMARY;
+        if (ids != null && !ids.isEmpty()) {
+            List<?> customers = summary
+                    ? customerService.getCustomerSummariesByIds(ids)
+                    : customerService.getCustomersByIds(ids);
+            return ResponseEntity.ok(new CursorPage<>(customers, null, false));
+        }
+
+        boolean onlyActive = active != null && active;
+        CursorPage<?> response;
+        if (summary) {
+            response = onlyActive
+                    ? customerService.getActiveCustomerSummaries(cursor, size)
+                    : customerService.getCustomerSummaries(cursor, size);
+        } else {
+            response = onlyActive
+                    ? customerService.getActiveCustomers(cursor, size)
+                    : customerService.getAllCustomers(cursor, size);
+        }
 
-        List<CustomerResponse> response = active != null && active
-                ? customerService.getActiveCustomers()
-                : customerService.getAllCustomers();
+        return ResponseEntity.ok(response);
+    }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<CustomerResponse>> getCustomersBatch(
+            @RequestBody List<Long> ids) {
+        log.info("POST /api/v1/customers/batch ({} ids)", ids.size());
+        List<CustomerResponse> response = customerService.getCustomersByIds(ids);
         return ResponseEntity.ok(response);
     }
 
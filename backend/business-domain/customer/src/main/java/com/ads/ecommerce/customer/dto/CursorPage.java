@@ -0,0 +1,76 @@
+package com.ads.ecommerce.customer.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Página de resultados con paginación por cursor (keyset sobre el ID).
+ * El cursor es opaco para el cliente: se devuelve tal cual en la siguiente petición.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 200;
+    
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+    
+    /**
+     * Construye la página a partir de filas leídas con límite size + 1
+     */
+    public static <E, T> CursorPage<T> of(List<E> rows, int size,
+                                          Function<E, Long> idOf, Function<E, T> mapper) {
+        boolean hasMore = rows.size() > size;
+        List<E> pageRows = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = hasMore ? encode(idOf.apply(pageRows.get(pageRows.size() - 1))) : null;
+        
+        List<T> items = pageRows.stream()
+            .map(mapper)
+            .collect(Collectors.toList());
+        return new CursorPage<>(items, nextCursor, hasMore);
+    }
+    
+    /**
+     * Normaliza el tamaño de página pedido al rango permitido
+     */
+    public static int clampSize(Integer size) {
+        if (size == null || size <= 0) {
+            return DEFAULT_SIZE;
+        }
+        return Math.min(size, MAX_SIZE);
+    }
+    
+    public static String encode(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(("id:" + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Devuelve el último ID visto, o 0 si no hay cursor (primera página)
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith("id:")) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return Long.parseLong(raw.substring(3));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.ads.ecommerce.customer.dto;
+
+import com.ads.ecommerce.customer.model.CustomerType;
+
+/**
+ * Cliente en un listado resumido (?view=summary): sin datos fiscales, teléfono ni dirección.
+ * Las consultas de resumen de CustomerRepository lo construyen directamente (SELECT new),
+ * leyendo solo estas columnas y sin cargar entidades en el contexto de persistencia.
+ */
+public record CustomerSummary(
+        Long id,
+        String customerCode,
+        String name,
+        String email,
+        CustomerType customerType,
+        Boolean active) {
+}
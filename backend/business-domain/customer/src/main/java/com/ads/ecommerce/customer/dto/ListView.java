@@ -0,0 +1,26 @@
+package com.ads.ecommerce.customer.dto;
+
+import java.util.Locale;
+
+/**
+ * Vista de los listados (?view=): FULL devuelve CustomerResponse completo;
+ * SUMMARY solo las columnas que muestra un listado (CustomerSummary)
+ */
+public enum ListView {
+    FULL,
+    SUMMARY;
+    
+    /**
+     * Admite ?view=summary y ?view=SUMMARY; sin parámetro, FULL
+     */
+    public static ListView from(String value) {
+        if (value == null || value.isBlank()) {
+            return FULL;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Vista no válida: " + value + " (full o summary)");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.ads.ecommerce.customer.event;
+
+import java.net.URI;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Avisa a order-service para que descarte su copia en caché del cliente.
+ * Cada instancia de order-service tiene su propia caché, así que el aviso se envía
+ * a todas las registradas en Eureka; sin ninguna registrada (p. ej. en local sin
+ * Eureka) se usa order-service-url.
+ * Se ejecuta tras el commit y de forma asíncrona: un fallo aquí no afecta
+ * a la operación sobre el cliente (order-service expira la entrada por TTL).
+ */
+@Slf4j
+@Component
+public class CustomerCacheInvalidationListener {
+    
+    private final RestClient restClient;
+    private final DiscoveryClient discoveryClient;
+    private final String orderServiceId;
+    private final URI fallbackUrl;
+    private final boolean enabled;
+    
+    public CustomerCacheInvalidationListener(
+            RestClient.Builder restClientBuilder,
+            DiscoveryClient discoveryClient,
+            @Value("${customer.cache-invalidation.order-service-id:order-service}") String orderServiceId,
+            @Value("${customer.cache-invalidation.order-service-url:http://localhost:8083}") String orderServiceUrl,
+            @Value("${customer.cache-invalidation.enabled:true}") boolean enabled) {
+        this.restClient = restClientBuilder.build();
+        this.discoveryClient = discoveryClient;
+        this.orderServiceId = orderServiceId;
+        this.fallbackUrl = URI.create(orderServiceUrl);
+        this.enabled = enabled;
+    }
+    
+    @Async
+    @TransactionalEventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        List<URI> targets = orderServiceInstances();
+        targets.forEach(target -> invalidate(target, event.getCustomerId()));
+        log.debug("Cache invalidation sent for customer {} to {} order-service instances",
+            event.getCustomerId(), targets.size());
+    }
+    
+    private List<URI> orderServiceInstances() {
+        try {
+            List<URI> instances = discoveryClient.getInstances(orderServiceId).stream()
+                .map(ServiceInstance::getUri)
+                .toList();
+            return instances.isEmpty() ? List.of(fallbackUrl) : instances;
+        } catch (RuntimeException e) {
+            log.warn("Could not list {} instances, using {}: {}", orderServiceId, fallbackUrl, e.getMessage());
+            return List.of(fallbackUrl);
+        }
+    }
+    
+    private void invalidate(URI instance, Long customerId) {
+        URI uri = UriComponentsBuilder.fromUri(instance)
+            .path("/api/v1/cache/customers/{id}")
+            .buildAndExpand(customerId)
+            .toUri();
+        try {
+            restClient.delete()
+                .uri(uri)
+                .retrieve()
+                .toBodilessEntity();
+        } catch (RestClientException e) {
+            log.warn("Could not invalidate customer {} in order-service {}: {}",
+                customerId, instance, e.getMessage());
+        }
+    }
+}
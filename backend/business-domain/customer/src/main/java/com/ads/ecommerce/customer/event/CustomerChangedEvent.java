@@ -0,0 +1,13 @@
+package com.ads.ecommerce.customer.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Se publica cuando cambian datos de un cliente que otros servicios cachean
+ */
+@Data
+@AllArgsConstructor
+public class CustomerChangedEvent {
+    private Long customerId;
+}
@@ -0,0 +1,29 @@
+package com.ads.ecommerce.customer.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Contador persistente de códigos de cliente, una fila por prefijo y año
+ * (p. ej. "REG-2026"). Las instancias reservan segmentos de valores con el
+ * SequenceBlockAllocator del módulo common.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "customer_code_sequences")
+public class CodeSequence {
+    
+    @Id
+    @Column(length = 20)
+    private String name;
+    
+    @Column(nullable = false)
+    private Long nextValue;  // Primer valor aún no reservado
+}
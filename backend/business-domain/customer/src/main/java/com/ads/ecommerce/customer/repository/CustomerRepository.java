@@ -1,11 +1,16 @@
 package com.ads.ecommerce.customer.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.ads.ecommerce.customer.dto.CustomerSummary;
 import com.ads.ecommerce.customer.model.Customer;
 import com.ads.ecommerce.customer.model.CustomerType;
 
@@ -21,10 +26,32 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     
     List<Customer> findByCustomerType(CustomerType type);
     
+    @Query("SELECT c FROM Customer c WHERE c.id > :afterId ORDER BY c.id")
+    List<Customer> findPage(@Param("afterId") Long afterId, Limit limit);
+    
+    @Query("SELECT c FROM Customer c WHERE c.active = :active AND c.id > :afterId ORDER BY c.id")
+    List<Customer> findPageByActive(@Param("active") Boolean active,
+                                    @Param("afterId") Long afterId, Limit limit);
+    
+    // Vista resumida (?view=summary): solo las columnas del listado
+    String SUMMARY_SELECT = "SELECT new com.ads.ecommerce.customer.dto.CustomerSummary(" +
+                            "c.id, c.customerCode, c.name, c.email, c.customerType, c.active) FROM Customer c ";
+    
+    @Query(SUMMARY_SELECT + "WHERE c.id > :afterId ORDER BY c.id")
+    List<CustomerSummary> findSummaryPage(@Param("afterId") Long afterId, Limit limit);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.active = :active AND c.id > :afterId ORDER BY c.id")
+    List<CustomerSummary> findSummaryPageByActive(@Param("active") Boolean active,
+                                                  @Param("afterId") Long afterId, Limit limit);
+    
+    @Query(SUMMARY_SELECT + "WHERE c.id IN :ids ORDER BY c.id")
+    List<CustomerSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+    
     boolean existsByEmail(String email);
     
     boolean existsByTaxId(String taxId);
     
-        // Usar customerCode en lugar de code
-    Optional<Customer> findTopByCustomerCodeStartingWithOrderByCustomerCodeDesc(String prefix);
+    // Solo al crear la secuencia de un prefijo y año (CustomerCodeGenerator)
+    @Query("SELECT c.customerCode FROM Customer c WHERE c.customerCode LIKE CONCAT(:prefix, '%')")
+    List<String> findCustomerCodesStartingWith(@Param("prefix") String prefix);
 }
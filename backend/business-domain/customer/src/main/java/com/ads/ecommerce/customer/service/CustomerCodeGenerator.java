@@ -0,0 +1,77 @@
+package com.ads.ecommerce.customer.service;
+
+import java.time.Year;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.ads.ecommerce.common.sequence.BlockSequence;
+import com.ads.ecommerce.common.sequence.SequenceBlockAllocator;
+import com.ads.ecommerce.customer.model.CustomerType;
+import com.ads.ecommerce.customer.repository.CustomerRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Genera códigos de cliente PREFIJO-AÑO-NNNNN (VIP/WHO/REG) sin consultar
+ * la tabla de clientes en cada alta. Cada prefijo y año tiene su propia
+ * secuencia en customer_code_sequences, de la que se reservan segmentos
+ * que se reparten desde memoria.
+ */
+@Slf4j
+@Component
+public class CustomerCodeGenerator {
+    
+    private final BlockSequence sequence;
+    private final CustomerRepository customerRepository;
+    
+    private volatile int currentYear;
+    
+    public CustomerCodeGenerator(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 CustomerRepository customerRepository,
+                                 @Value("${customer.code.segment-size:20}") int segmentSize) {
+        this.sequence = new BlockSequence(
+            new SequenceBlockAllocator(jdbcTemplate, transactionManager, "customer_code_sequences"), segmentSize);
+        this.customerRepository = customerRepository;
+    }
+    
+    public String next(CustomerType type) {
+        int year = Year.now().getValue();
+        if (year != currentYear) {
+            // Los segmentos de años anteriores ya no se usarán
+            currentYear = year;
+            sequence.retainOnly(name -> name.endsWith("-" + year));
+        }
+        String yearPrefix = getPrefix(type) + "-" + year;
+        long value = sequence.next(yearPrefix, () -> lastUsedNumber(yearPrefix));
+        return String.format("%s-%05d", yearPrefix, value);
+    }
+    
+    private String getPrefix(CustomerType type) {
+        return switch (type) {
+            case VIP -> "VIP";
+            case WHOLESALE -> "WHO";
+            default -> "REG";
+        };
+    }
+    
+    /**
+     * Último número emitido para el prefijo, para continuar la numeración existente
+     * la primera vez que se crea la secuencia. Los códigos con un sufijo no numérico
+     * (altas manuales o migradas) se ignoran.
+     */
+    private long lastUsedNumber(String yearPrefix) {
+        long max = 0L;
+        for (String code : customerRepository.findCustomerCodesStartingWith(yearPrefix + "-")) {
+            try {
+                max = Math.max(max, Long.parseLong(code.substring(code.lastIndexOf('-') + 1)));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring customer code {} when seeding sequence {}: not numeric", code, yearPrefix);
+            }
+        }
+        return max;
+    }
+}
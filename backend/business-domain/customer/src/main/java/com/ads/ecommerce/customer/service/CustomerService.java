@@ -1,15 +1,21 @@
 package com.ads.ecommerce.customer.service;
 
-import java.time.Year;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.ads.ecommerce.customer.dto.CursorPage;
 import com.ads.ecommerce.customer.dto.CustomerRequest;
 import com.ads.ecommerce.customer.dto.CustomerResponse;
+import com.ads.ecommerce.customer.dto.CustomerSummary;
+import com.ads.ecommerce.customer.event.CustomerChangedEvent;
 import com.ads.ecommerce.customer.exception.CustomerNotFoundException;
 import com.ads.ecommerce.customer.model.Customer;
 import com.ads.ecommerce.customer.model.CustomerType;
@@ -25,7 +31,8 @@ import lombok.extern.slf4j.Slf4j;
 public class CustomerService {
 
        private final CustomerRepository customerRepository;
-    private int counter = 1;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CustomerCodeGenerator customerCodeGenerator;
     
     @Transactional
     public CustomerResponse createCustomer(CustomerRequest request) {
@@ -65,18 +72,52 @@ public class CustomerService {
         return toResponse(customer);
     }
     
+    /**
+     * Obtiene varios clientes por ID en una sola consulta
+     */
     @Transactional(readOnly = true)
-    public List<CustomerResponse> getAllCustomers() {
-        return customerRepository.findAll().stream()
+    public List<CustomerResponse> getCustomersByIds(Collection<Long> ids) {
+        return customerRepository.findAllById(new LinkedHashSet<>(ids)).stream()
             .map(this::toResponse)
             .collect(Collectors.toList());
     }
     
     @Transactional(readOnly = true)
-    public List<CustomerResponse> getActiveCustomers() {
-        return customerRepository.findByActive(true).stream()
-            .map(this::toResponse)
-            .collect(Collectors.toList());
+    public CursorPage<CustomerResponse> getAllCustomers(String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        List<Customer> rows = customerRepository.findPage(CursorPage.decode(cursor), Limit.of(pageSize + 1));
+        return CursorPage.of(rows, pageSize, Customer::getId, this::toResponse);
+    }
+    
+    @Transactional(readOnly = true)
+    public CursorPage<CustomerResponse> getActiveCustomers(String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        List<Customer> rows = customerRepository.findPageByActive(
+            true, CursorPage.decode(cursor), Limit.of(pageSize + 1));
+        return CursorPage.of(rows, pageSize, Customer::getId, this::toResponse);
+    }
+    
+    // Vista resumida (?view=summary): proyecciones que leen solo las columnas del listado
+    
+    @Transactional(readOnly = true)
+    public List<CustomerSummary> getCustomerSummariesByIds(Collection<Long> ids) {
+        return customerRepository.findSummariesByIdIn(new LinkedHashSet<>(ids));
+    }
+    
+    @Transactional(readOnly = true)
+    public CursorPage<CustomerSummary> getCustomerSummaries(String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        List<CustomerSummary> rows = customerRepository.findSummaryPage(
+            CursorPage.decode(cursor), Limit.of(pageSize + 1));
+        return CursorPage.of(rows, pageSize, CustomerSummary::id, Function.identity());
+    }
+    
+    @Transactional(readOnly = true)
+    public CursorPage<CustomerSummary> getActiveCustomerSummaries(String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        List<CustomerSummary> rows = customerRepository.findSummaryPageByActive(
+            true, CursorPage.decode(cursor), Limit.of(pageSize + 1));
+        return CursorPage.of(rows, pageSize, CustomerSummary::id, Function.identity());
     }
     
     @Transactional
@@ -90,6 +131,7 @@ public class CustomerService {
         customer.setAddress(request.getAddress());
         
         Customer updated = customerRepository.save(customer);
+        eventPublisher.publishEvent(new CustomerChangedEvent(id));
         
         return toResponse(updated);
     }
@@ -101,6 +143,7 @@ public class CustomerService {
         
         customer.promoteToVip();
         customerRepository.save(customer);
+        eventPublisher.publishEvent(new CustomerChangedEvent(id));
     }
     
     @Transactional
@@ -110,6 +153,7 @@ public class CustomerService {
         
         customer.deactivate();
         customerRepository.save(customer);
+        eventPublisher.publishEvent(new CustomerChangedEvent(id));
     }
     
  @Transactional
@@ -119,64 +163,20 @@ public class CustomerService {
         
         customer.activate();
         customerRepository.save(customer);
+        eventPublisher.publishEvent(new CustomerChangedEvent(id));
     }
 
     @Transactional
     public void deleteCustomer(Long id) {
         customerRepository.deleteById(id);
+        eventPublisher.publishEvent(new CustomerChangedEvent(id));
     }
     
     // Métodos auxiliares
-      public String generateCode(CustomerType type) {
-        String prefix = getPrefix(type);
-        String yearPrefix = prefix + "-" + Year.now().getValue();
-        
-        Long lastSequence = findLastSequenceNumber(yearPrefix);
-        Long nextSequence = lastSequence + 1;
-        
-        return String.format("%s-%05d", yearPrefix, nextSequence);
+    public String generateCode(CustomerType type) {
+        return customerCodeGenerator.next(type);
     }
     
-    private String getPrefix(CustomerType type) {
-        return switch (type) {
-            case VIP -> "VIP";
-            case WHOLESALE -> "WHO";
-            default -> "REG";
-        };
-    }
-    
-    private Long findLastSequenceNumber(String yearPrefix) {
-        try {
-            Optional<Customer> lastCustomer = customerRepository
-                .findTopByCustomerCodeStartingWithOrderByCustomerCodeDesc(yearPrefix);
-            
-            if (lastCustomer.isPresent()) {
-                String lastCode = lastCustomer.get().getCustomerCode(); // Usar getCustomerCode()
-                return extractSequenceNumber(lastCode);
-            }
-            return 0L;
-            
-        } catch (Exception e) {
-            // Log the error and return 0 as fallback
-            e.printStackTrace();
-            return 0L;
-        }
-    }
-    
-    private Long extractSequenceNumber(String code) {
-        try {
-            if (code != null && code.contains("-")) {
-                String sequencePart = code.substring(code.lastIndexOf("-") + 1);
-                return Long.parseLong(sequencePart);
-            }
-        } catch (NumberFormatException e) {
-            // Log warning
-            System.err.println("Error extrayendo número de secuencia del código: " + code);
-        }
-        return 0L;
-    }
-    
-    
     private CustomerResponse toResponse(Customer customer) {
         CustomerResponse response = new CustomerResponse();
         response.setId(customer.getId());
@@ -0,0 +1,129 @@
+package com.ads.ecommerce.order.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ads.ecommerce.order.client.CustomerClient;
+import com.ads.ecommerce.order.dto.CustomerDTO;
+import com.ads.ecommerce.order.exception.DownstreamErrors;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caché local acotada (tamaño y TTL) delante de CustomerClient.
+ * customer-service invalida entradas cuando un cliente cambia; el TTL
+ * limita la desactualización si se pierde una invalidación.
+ * Además guarda el último valor conocido de cada cliente (sin TTL): si
+ * customer-service no responde o su circuito está abierto, la resolución
+ * de nombres usa ese valor en lugar de fallar.
+ */
+@Slf4j
+@Component
+public class CustomerCache {
+    
+    private final CustomerClient customerClient;
+    private final Cache<Long, CustomerDTO> cache;
+    private final Cache<Long, CustomerDTO> lastKnown;
+    private final Counter staleFallbacks;
+    
+    public CustomerCache(CustomerClient customerClient,
+                         MeterRegistry meterRegistry,
+                         @Value("${order.customer-cache.max-size:10000}") long maxSize,
+                         @Value("${order.customer-cache.ttl-seconds:300}") long ttlSeconds,
+                         @Value("${order.customer-cache.last-known-max-size:50000}") long lastKnownMaxSize) {
+        this.customerClient = customerClient;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        this.lastKnown = Caffeine.newBuilder()
+            .maximumSize(lastKnownMaxSize)
+            .build();
+        // Expone cache.gets{result=hit|miss}, cache.evictions, cache.size, ...
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "customers");
+        this.staleFallbacks = Counter.builder("order.customer_cache.stale_fallbacks")
+            .description("Nombres de cliente servidos desde el último valor conocido por fallo de customer-service")
+            .register(meterRegistry);
+    }
+    
+    public CustomerDTO getCustomer(Long customerId) {
+        return cache.get(customerId, this::load);
+    }
+    
+    public String getCustomerName(Long customerId) {
+        try {
+            return getCustomer(customerId).getName();
+        } catch (RuntimeException e) {
+            CustomerDTO known = lastKnown.getIfPresent(customerId);
+            if (known == null) {
+                throw e;
+            }
+            staleFallbacks.increment();
+            log.warn("customer-service unavailable, using last known name for customer {}: {}",
+                customerId, DownstreamErrors.message(e));
+            return known.getName();
+        }
+    }
+    
+    /**
+     * Resuelve los nombres de varios clientes; los que no están en caché
+     * se piden a customer-service en una sola llamada.
+     * Si la llamada falla se usan los últimos valores conocidos; los clientes
+     * sin valor conocido quedan sin nombre.
+     */
+    public Map<Long, String> getCustomerNames(Collection<Long> customerIds) {
+        Map<Long, CustomerDTO> customers;
+        try {
+            customers = cache.getAll(customerIds, this::loadAll);
+        } catch (RuntimeException e) {
+            customers = lastKnown.getAllPresent(customerIds);
+            if (customers.isEmpty() && !customerIds.isEmpty()) {
+                throw e;
+            }
+            staleFallbacks.increment(customers.size());
+            log.warn("customer-service unavailable, using last known names for {}/{} customers: {}",
+                customers.size(), customerIds.size(), DownstreamErrors.message(e));
+        }
+        Map<Long, String> names = new HashMap<>();
+        customers.forEach((id, customer) -> names.put(id, customer.getName()));
+        return names;
+    }
+    
+    private CustomerDTO load(Long customerId) {
+        CustomerDTO customer = customerClient.getCustomer(customerId);
+        lastKnown.put(customerId, customer);
+        return customer;
+    }
+    
+    private Map<Long, CustomerDTO> loadAll(Set<? extends Long> customerIds) {
+        Map<Long, CustomerDTO> customers = customerClient.getCustomers(List.copyOf(customerIds)).stream()
+            .collect(Collectors.toMap(CustomerDTO::getId, Function.identity()));
+        lastKnown.putAll(customers);
+        return customers;
+    }
+    
+    public void invalidate(Long customerId) {
+        cache.invalidate(customerId);
+        log.debug("Customer {} evicted from cache", customerId);
+    }
+    
+    public void invalidateAll() {
+        cache.invalidateAll();
+        log.info("Customer cache cleared");
+    }
+}
@@ -0,0 +1,192 @@
+package com.ads.ecommerce.order.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cliente HTTP de Feign con timeouts adaptativos y hedging.
+ * Las lecturas usan los timeouts que AdaptiveTimeouts calcula para su método;
+ * las escrituras, los configurados.
+ * En los GET configurados, si la respuesta tarda más que el p95 reciente se
+ * envía una segunda petición igual y se usa la primera que responda bien;
+ * la otra se descarta al terminar.
+ */
+@Slf4j
+public class AdaptiveFeignClient implements Client {
+    
+    private final Client delegate;
+    private final AdaptiveTimeouts timeouts;
+    
+    public AdaptiveFeignClient(Client delegate, AdaptiveTimeouts timeouts) {
+        this.delegate = delegate;
+        this.timeouts = timeouts;
+    }
+    
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        String method = methodKey(request);
+        Request.Options adaptive = timeouts.optionsFor(method, request.httpMethod(), options);
+        
+        long hedgeDelayNanos = request.httpMethod() == Request.HttpMethod.GET
+            ? timeouts.hedgeDelayNanos(method)
+            : -1;
+        if (hedgeDelayNanos < 0) {
+            return timed(method, request, adaptive);
+        }
+        return hedged(method, request, adaptive, hedgeDelayNanos);
+    }
+    
+    private Response hedged(String method, Request request, Request.Options options, long delayNanos)
+            throws IOException {
+        CompletableFuture<Response> primary;
+        try {
+            primary = CompletableFuture.supplyAsync(() -> call(method, request, options), timeouts.executor());
+        } catch (RejectedExecutionException e) {
+            // Pool de hedging ocupado: llamada normal
+            return timed(method, request, options);
+        }
+        
+        try {
+            return primary.get(delayNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Superó el p95: duplicar si queda presupuesto
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            discard(primary);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Llamada a " + method + " interrumpida");
+        }
+        
+        CompletableFuture<Response> hedge = null;
+        if (timeouts.tryAcquireHedge(method)) {
+            try {
+                hedge = CompletableFuture.supplyAsync(() -> call(method, request, options), timeouts.executor());
+                log.debug("Hedging {} after {} ms", method, TimeUnit.NANOSECONDS.toMillis(delayNanos));
+            } catch (RejectedExecutionException e) {
+                log.debug("Hedge pool full, waiting for original {} call", method);
+            }
+        }
+        if (hedge == null) {
+            return await(method, primary);
+        }
+        return await(method, firstSuccessful(method, primary, hedge));
+    }
+    
+    /**
+     * Se completa con la primera respuesta correcta, o con el error de la original si fallan ambas.
+     * La respuesta que llega tarde se cierra para devolver la conexión al pool.
+     */
+    private CompletableFuture<Response> firstSuccessful(String method,
+                                                        CompletableFuture<Response> primary,
+                                                        CompletableFuture<Response> hedge) {
+        CompletableFuture<Response> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicReference<Throwable> primaryError = new AtomicReference<>();
+        
+        primary.whenComplete((response, error) -> {
+            if (error == null) {
+                if (!winner.complete(response)) {
+                    response.close();
+                }
+                return;
+            }
+            primaryError.set(error);
+            if (failures.incrementAndGet() == 2) {
+                winner.completeExceptionally(error);
+            }
+        });
+        hedge.whenComplete((response, error) -> {
+            if (error == null) {
+                if (winner.complete(response)) {
+                    timeouts.recordHedgeWin(method);
+                } else {
+                    response.close();
+                }
+                return;
+            }
+            if (failures.incrementAndGet() == 2) {
+                winner.completeExceptionally(primaryError.get() != null ? primaryError.get() : error);
+            }
+        });
+        return winner;
+    }
+    
+    private Response await(String method, CompletableFuture<Response> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            discard(future);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Llamada a " + method + " interrumpida");
+        }
+    }
+    
+    private Response call(String method, Request request, Request.Options options) {
+        try {
+            return timed(method, request, options);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Ejecuta la petición y guarda su latencia. Un timeout cuenta como muestra
+     * con el tiempo esperado, para que los percentiles suban si el servicio se ralentiza.
+     */
+    private Response timed(String method, Request request, Request.Options options) throws IOException {
+        long start = System.nanoTime();
+        try {
+            Response response = delegate.execute(request, options);
+            timeouts.record(method, System.nanoTime() - start);
+            return response;
+        } catch (SocketTimeoutException e) {
+            timeouts.record(method, System.nanoTime() - start);
+            throw e;
+        }
+    }
+    
+    private void discard(CompletableFuture<Response> future) {
+        future.thenAccept(Response::close);
+    }
+    
+    private IOException rethrow(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+            ? error.getCause()
+            : error;
+        if (cause instanceof UncheckedIOException unchecked) {
+            return unchecked.getCause();
+        }
+        if (cause instanceof IOException io) {
+            return io;
+        }
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        return new IOException(cause);
+    }
+    
+    private static String methodKey(Request request) {
+        if (request.requestTemplate() != null && request.requestTemplate().methodMetadata() != null) {
+            return request.requestTemplate().methodMetadata().configKey();
+        }
+        return request.httpMethod().name();
+    }
+}
@@ -0,0 +1,22 @@
+package com.ads.ecommerce.order.client;
+
+import feign.Capability;
+import feign.Client;
+
+/**
+ * Envuelve el cliente HTTP de cada Feign client con AdaptiveFeignClient.
+ * Debe ser una clase pública: Feign invoca enrich() por reflexión.
+ */
+public class AdaptiveTimeoutCapability implements Capability {
+    
+    private final AdaptiveTimeouts timeouts;
+    
+    public AdaptiveTimeoutCapability(AdaptiveTimeouts timeouts) {
+        this.timeouts = timeouts;
+    }
+    
+    @Override
+    public Client enrich(Client client) {
+        return new AdaptiveFeignClient(client, timeouts);
+    }
+}
@@ -0,0 +1,258 @@
+package com.ads.ecommerce.order.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import feign.Request;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Timeouts de Feign derivados de la latencia reciente de cada método
+ * (p. ej. "ProductClient#getProduct(Long)") en lugar de un valor fijo.
+ * Cada método guarda las últimas window-size latencias; cada refresh-ms se
+ * recalculan p95 y p99. El read timeout pasa a ser p99 * timeout-multiplier,
+ * entre min-timeout-ms y el timeout configurado del cliente (que sigue siendo
+ * el máximo y el valor usado hasta reunir min-samples llamadas).
+ * Solo se acortan los timeouts de lecturas: los GET y los métodos de
+ * adaptive-timeout.methods (p. ej. consultas por POST). Las escrituras, como
+ * updateStockBatch, mantienen el timeout configurado: cortarlas antes solo
+ * produce reintentos de operaciones que quizá ya se aplicaron.
+ * También lleva el presupuesto de peticiones duplicadas (hedging): como mucho
+ * max-percent de las llamadas elegibles, con una ráfaga máxima de burst.
+ */
+@Slf4j
+@Component
+public class AdaptiveTimeouts {
+    
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, MethodStats> stats = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final int windowSize;
+    private final int minSamples;
+    private final long refreshNanos;
+    private final double multiplier;
+    private final long minTimeoutMs;
+    private final Set<String> adaptiveMethods;
+    private final boolean hedgingEnabled;
+    private final Set<String> hedgedMethods;
+    private final long minHedgeDelayNanos;
+    private final long hedgeCredit;
+    private final long maxHedgeCredit;
+    private final AtomicLong hedgeBudget = new AtomicLong();
+    private final ThreadPoolExecutor hedgeExecutor;
+    
+    public AdaptiveTimeouts(MeterRegistry meterRegistry,
+                            @Value("${order.client.adaptive-timeout.enabled:true}") boolean enabled,
+                            @Value("${order.client.adaptive-timeout.window-size:1000}") int windowSize,
+                            @Value("${order.client.adaptive-timeout.min-samples:50}") int minSamples,
+                            @Value("${order.client.adaptive-timeout.refresh-ms:1000}") long refreshMs,
+                            @Value("${order.client.adaptive-timeout.timeout-multiplier:2.0}") double multiplier,
+                            @Value("${order.client.adaptive-timeout.min-timeout-ms:250}") long minTimeoutMs,
+                            @Value("${order.client.adaptive-timeout.methods:}") List<String> adaptiveMethods,
+                            @Value("${order.client.hedging.enabled:true}") boolean hedgingEnabled,
+                            @Value("${order.client.hedging.methods:}") List<String> hedgedMethods,
+                            @Value("${order.client.hedging.max-percent:5}") int maxPercent,
+                            @Value("${order.client.hedging.burst:10}") int burst,
+                            @Value("${order.client.hedging.min-delay-ms:10}") long minHedgeDelayMs,
+                            @Value("${order.client.hedging.pool-size:32}") int poolSize) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.windowSize = windowSize;
+        this.minSamples = minSamples;
+        this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMs);
+        this.multiplier = multiplier;
+        this.minTimeoutMs = minTimeoutMs;
+        this.adaptiveMethods = new HashSet<>(adaptiveMethods);
+        this.hedgingEnabled = hedgingEnabled && maxPercent > 0;
+        this.hedgedMethods = new HashSet<>(hedgedMethods);
+        this.minHedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(minHedgeDelayMs);
+        // Cada llamada elegible suma maxPercent créditos; una petición duplicada cuesta 100
+        this.hedgeCredit = maxPercent;
+        this.maxHedgeCredit = 100L * burst;
+        
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.hedgeExecutor = new ThreadPoolExecutor(0, poolSize, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "feign-hedge-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+    
+    /**
+     * Timeouts para la siguiente llamada del método; los configurados si no es una lectura
+     * o mientras no haya muestras suficientes
+     */
+    public Request.Options optionsFor(String method, Request.HttpMethod httpMethod, Request.Options configured) {
+        if (!enabled || (httpMethod != Request.HttpMethod.GET && !adaptiveMethods.contains(method))) {
+            return configured;
+        }
+        MethodStats methodStats = statsFor(method);
+        if (!methodStats.isWarm()) {
+            return configured;
+        }
+        long readTimeoutMs = methodStats.timeoutMs(configured.readTimeoutMillis());
+        long connectTimeoutMs = Math.min(configured.connectTimeoutMillis(), readTimeoutMs);
+        return new Request.Options(connectTimeoutMs, TimeUnit.MILLISECONDS,
+            readTimeoutMs, TimeUnit.MILLISECONDS, configured.isFollowRedirects());
+    }
+    
+    public void record(String method, long elapsedNanos) {
+        statsFor(method).record(elapsedNanos);
+    }
+    
+    /**
+     * Espera antes de duplicar la petición (p95 reciente), o -1 si el método no admite hedging
+     */
+    public long hedgeDelayNanos(String method) {
+        if (!hedgingEnabled || !hedgedMethods.contains(method)) {
+            return -1;
+        }
+        MethodStats methodStats = statsFor(method);
+        if (!methodStats.isWarm()) {
+            return -1;
+        }
+        depositHedgeCredit();
+        return Math.max(methodStats.p95Nanos, minHedgeDelayNanos);
+    }
+    
+    /**
+     * Consume el presupuesto de una petición duplicada; false si se alcanzó el límite
+     */
+    public boolean tryAcquireHedge(String method) {
+        long current;
+        do {
+            current = hedgeBudget.get();
+            if (current < 100) {
+                statsFor(method).hedgesSkipped.increment();
+                return false;
+            }
+        } while (!hedgeBudget.compareAndSet(current, current - 100));
+        statsFor(method).hedgesSent.increment();
+        return true;
+    }
+    
+    public void recordHedgeWin(String method) {
+        statsFor(method).hedgeWins.increment();
+    }
+    
+    ExecutorService executor() {
+        return hedgeExecutor;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        hedgeExecutor.shutdownNow();
+    }
+    
+    private void depositHedgeCredit() {
+        hedgeBudget.accumulateAndGet(hedgeCredit, (current, credit) -> Math.min(current + credit, maxHedgeCredit));
+    }
+    
+    private MethodStats statsFor(String method) {
+        return stats.computeIfAbsent(method, MethodStats::new);
+    }
+    
+    /**
+     * Ventana circular de las últimas latencias de un método y sus percentiles
+     */
+    private class MethodStats {
+        private final String method;
+        private final AtomicLongArray samples = new AtomicLongArray(windowSize);
+        private final AtomicLong recorded = new AtomicLong();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private final Counter hedgesSent;
+        private final Counter hedgesSkipped;
+        private final Counter hedgeWins;
+        private volatile long refreshedAt = System.nanoTime();
+        private volatile long p95Nanos;
+        private volatile long p99Nanos;
+        private volatile boolean warm;
+        
+        private MethodStats(String method) {
+            this.method = method;
+            Gauge.builder("order.client.latency.p95", this, stats -> stats.p95Nanos / 1_000_000.0)
+                .description("Latencia p95 reciente del método (ms)")
+                .tag("method", method)
+                .register(meterRegistry);
+            Gauge.builder("order.client.latency.p99", this, stats -> stats.p99Nanos / 1_000_000.0)
+                .description("Latencia p99 reciente del método (ms)")
+                .tag("method", method)
+                .register(meterRegistry);
+            this.hedgesSent = Counter.builder("order.client.hedges")
+                .description("Peticiones duplicadas por superar el p95")
+                .tag("method", method)
+                .register(meterRegistry);
+            this.hedgesSkipped = Counter.builder("order.client.hedges.skipped")
+                .description("Peticiones que superaron el p95 sin presupuesto para duplicarse")
+                .tag("method", method)
+                .register(meterRegistry);
+            this.hedgeWins = Counter.builder("order.client.hedges.wins")
+                .description("Peticiones duplicadas que respondieron antes que la original")
+                .tag("method", method)
+                .register(meterRegistry);
+        }
+        
+        private void record(long elapsedNanos) {
+            long index = recorded.getAndIncrement();
+            samples.set((int) (index % windowSize), elapsedNanos);
+            
+            long now = System.nanoTime();
+            if (now - refreshedAt >= refreshNanos && refreshing.compareAndSet(false, true)) {
+                try {
+                    refresh(now);
+                } finally {
+                    refreshing.set(false);
+                }
+            }
+        }
+        
+        private void refresh(long now) {
+            int count = (int) Math.min(recorded.get(), windowSize);
+            if (count < minSamples) {
+                return;
+            }
+            long[] sorted = new long[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = samples.get(i);
+            }
+            Arrays.sort(sorted);
+            p95Nanos = sorted[(int) Math.ceil(count * 0.95) - 1];
+            p99Nanos = sorted[(int) Math.ceil(count * 0.99) - 1];
+            refreshedAt = now;
+            if (!warm) {
+                warm = true;
+                log.info("Adaptive timeouts active for {}: p95={} ms, p99={} ms",
+                    method, Duration.ofNanos(p95Nanos).toMillis(), Duration.ofNanos(p99Nanos).toMillis());
+            }
+        }
+        
+        private boolean isWarm() {
+            return warm;
+        }
+        
+        private long timeoutMs(long maxTimeoutMs) {
+            long derived = (long) Math.ceil(p99Nanos * multiplier / 1_000_000.0);
+            return Math.min(maxTimeoutMs, Math.max(minTimeoutMs, derived));
+        }
+    }
+}
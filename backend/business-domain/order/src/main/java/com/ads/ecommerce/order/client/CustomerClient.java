@@ -1,8 +1,13 @@
 package com.ads.ecommerce.order.client;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
 import com.ads.ecommerce.order.dto.CustomerDTO;
 
@@ -11,6 +16,9 @@ public interface CustomerClient {
     
     @GetMapping("/api/v1/customers/{id}")
     CustomerDTO getCustomer(@PathVariable("id") Long id);
+    
+    @PostMapping("/api/v1/customers/batch")
+    List<CustomerDTO> getCustomers(@RequestBody Collection<Long> ids);
 
     
 }
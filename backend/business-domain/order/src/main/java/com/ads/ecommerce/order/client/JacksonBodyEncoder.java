@@ -0,0 +1,39 @@
+package com.ads.ecommerce.order.client;
+
+import java.lang.reflect.Type;
+
+import org.springframework.http.HttpHeaders;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import feign.RequestTemplate;
+import feign.codec.EncodeException;
+import feign.codec.Encoder;
+
+/**
+ * Serializa el cuerpo de las peticiones Feign con el mapper indicado
+ * (Smile o JSON) y fija su Content-Type
+ */
+public class JacksonBodyEncoder implements Encoder {
+    
+    private final ObjectMapper mapper;
+    private final String contentType;
+    
+    public JacksonBodyEncoder(ObjectMapper mapper, String contentType) {
+        this.mapper = mapper;
+        this.contentType = contentType;
+    }
+    
+    @Override
+    public void encode(Object object, Type bodyType, RequestTemplate template) {
+        try {
+            byte[] body = mapper.writerFor(mapper.constructType(bodyType)).writeValueAsBytes(object);
+            template.removeHeader(HttpHeaders.CONTENT_TYPE);
+            template.header(HttpHeaders.CONTENT_TYPE, contentType);
+            template.body(body, null);
+        } catch (JsonProcessingException e) {
+            throw new EncodeException("No se pudo serializar el cuerpo de la petición: " + e.getMessage(), e);
+        }
+    }
+}
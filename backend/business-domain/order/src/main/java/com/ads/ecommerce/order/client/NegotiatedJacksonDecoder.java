@@ -0,0 +1,50 @@
+package com.ads.ecommerce.order.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import feign.Response;
+import feign.Util;
+import feign.codec.Decoder;
+
+/**
+ * Deserializa la respuesta según su Content-Type: Smile si el servicio lo
+ * negoció, JSON en otro caso (servicios aún sin Smile, respuestas de error)
+ */
+public class NegotiatedJacksonDecoder implements Decoder {
+    
+    public static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper;
+    
+    public NegotiatedJacksonDecoder(ObjectMapper jsonMapper, ObjectMapper smileMapper) {
+        this.jsonMapper = jsonMapper;
+        this.smileMapper = smileMapper;
+    }
+    
+    @Override
+    public Object decode(Response response, Type type) throws IOException {
+        if (response.status() == 204 || response.status() == 404 || response.body() == null) {
+            return Util.emptyValueOf(type);
+        }
+        ObjectMapper mapper = isSmile(response) ? smileMapper : jsonMapper;
+        try (InputStream body = response.body().asInputStream()) {
+            return mapper.readValue(body, mapper.constructType(type));
+        }
+    }
+    
+    public static boolean isSmile(Response response) {
+        // Feign guarda las cabeceras de la respuesta sin distinguir mayúsculas
+        Collection<String> contentType = response.headers().get(HttpHeaders.CONTENT_TYPE);
+        return contentType != null && contentType.stream()
+            .anyMatch(value -> SMILE.isCompatibleWith(MediaType.parseMediaType(value)));
+    }
+}
@@ -1,15 +1,18 @@
 package com.ads.ecommerce.order.client;
 
-import java.util.Map;
+import java.util.Collection;
+import java.util.List;
 
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import com.ads.ecommerce.order.dto.ProductDTO;
+import com.ads.ecommerce.order.dto.StockBatchRequest;
 
-import io.swagger.v3.oas.annotations.parameters.RequestBody;
 @FeignClient(name = "product-service", url = "http://localhost:8082",    configuration = com.ads.ecommerce.order.config.FeignConfig.class
  )
 public interface ProductClient {
@@ -17,7 +20,10 @@ public interface ProductClient {
     @GetMapping("/api/v1/products/{id}")
     ProductDTO getProduct(@PathVariable("id") Long id);
     
-    @PatchMapping("/api/v1/products/{id}/stock")
-      void updateStock(@PathVariable("id") Long id, @RequestBody Map<String, Object> request);
+    @GetMapping("/api/v1/products/batch")
+    List<ProductDTO> getProducts(@RequestParam("ids") Collection<Long> ids);
+    
+    @PatchMapping("/api/v1/products/stock")
+    List<ProductDTO> updateStockBatch(@RequestBody StockBatchRequest request);
     
 }
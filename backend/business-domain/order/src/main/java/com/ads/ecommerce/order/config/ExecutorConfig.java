@@ -0,0 +1,29 @@
+package com.ads.ecommerce.order.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Pools de hilos propios del servicio de órdenes
+ */
+@Configuration
+public class ExecutorConfig {
+    
+    /**
+     * Pool para las validaciones en paralelo contra customer-service y product-service.
+     * Con la cola llena rechaza la tarea (TaskRejectedException), que se responde con 503.
+     */
+    @Bean(name = "orderValidationExecutor")
+    public ThreadPoolTaskExecutor orderValidationExecutor(
+            @Value("${order.validation.pool-size:16}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(poolSize * 4);
+        executor.setThreadNamePrefix("order-validation-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,18 +1,40 @@
 package com.ads.ecommerce.order.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.client.RestTemplate;
 
+import com.ads.ecommerce.order.client.AdaptiveTimeoutCapability;
+import com.ads.ecommerce.order.client.AdaptiveTimeouts;
+import com.ads.ecommerce.order.client.JacksonBodyEncoder;
+import com.ads.ecommerce.order.client.NegotiatedJacksonDecoder;
 import com.ads.ecommerce.order.exception.CustomFeignErrorDecoder;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 
+import feign.Capability;
 import feign.Logger;
+import feign.RequestInterceptor;
+import feign.codec.Decoder;
+import feign.codec.Encoder;
 import feign.codec.ErrorDecoder;
+import feign.optionals.OptionalDecoder;
 
 @Configuration
 public class FeignConfig {
     
+    /**
+     * Smile (JSON binario) entre servicios; false vuelve a JSON, p. ej. mientras
+     * customer-service o product-service no lo soporten
+     */
+    @Value("${order.client.smile.enabled:true}")
+    private boolean smileEnabled;
+    
     @Bean
     public Logger.Level feignLoggerLevel() {
         return Logger.Level.BASIC;
@@ -26,6 +48,40 @@ public class FeignConfig {
         return new CustomFeignErrorDecoder();
     }
     
+    /**
+     * Pide Smile y acepta JSON como alternativa
+     */
+    @Bean
+    public RequestInterceptor acceptHeaderInterceptor() {
+        String accept = smileEnabled
+            ? NegotiatedJacksonDecoder.SMILE + ", " + MediaType.APPLICATION_JSON_VALUE + ";q=0.9"
+            : MediaType.APPLICATION_JSON_VALUE;
+        return template -> template.header(HttpHeaders.ACCEPT, accept);
+    }
+    
+    @Bean
+    public Encoder wireFormatEncoder(JsonMapper objectMapper, SmileMapper smileMapper) {
+        return smileEnabled
+            ? new JacksonBodyEncoder(smileMapper, NegotiatedJacksonDecoder.SMILE.toString())
+            : new JacksonBodyEncoder(objectMapper, MediaType.APPLICATION_JSON_VALUE);
+    }
+    
+    /**
+     * Decodifica Smile o JSON según el Content-Type de la respuesta
+     */
+    @Bean
+    public Decoder wireFormatDecoder(JsonMapper objectMapper, SmileMapper smileMapper) {
+        return new OptionalDecoder(new ResponseEntityDecoder(new NegotiatedJacksonDecoder(objectMapper, smileMapper)));
+    }
+    
+    /**
+     * Timeouts según la latencia reciente de cada método y hedging de los GET configurados
+     */
+    @Bean
+    public Capability adaptiveTimeoutCapability(AdaptiveTimeouts adaptiveTimeouts) {
+        return new AdaptiveTimeoutCapability(adaptiveTimeouts);
+    }
+    
     /**
      * RestTemplate con balanceo de carga (alternativa a Feign)
      * Opcional: útil si necesitas llamadas HTTP directas
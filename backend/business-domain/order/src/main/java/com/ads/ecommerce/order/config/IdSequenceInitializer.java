@@ -0,0 +1,52 @@
+package com.ads.ecommerce.order.config;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ajusta las tablas de secuencia de IDs para que nunca queden por debajo
+ * de los IDs ya existentes (filas creadas cuando se usaba IDENTITY).
+ * Es idempotente y seguro aunque arranquen varias instancias a la vez.
+ * El pooled optimizer toma el valor leído como límite superior del bloque,
+ * por eso se deja next_val en MAX(id) + ALLOCATION_SIZE.
+ * Se ejecuta al terminar de crear los beans, con las tablas de secuencia ya
+ * creadas por Hibernate y antes de que el servidor web acepte peticiones o se
+ * ejecute cualquier runner (DataLoader, InsertBenchmarkRunner): ninguna
+ * inserción puede tomar IDs de un next_val sin ajustar.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class IdSequenceInitializer implements SmartInitializingSingleton {
+    
+    /** Debe coincidir con el allocationSize de los @SequenceGenerator. */
+    private static final int ALLOCATION_SIZE = 50;
+    
+    private static final String[][] SEQUENCES = {
+        {"sale_order_seq", "sale_orders"},
+        {"order_line_seq", "order_lines"},
+        {"payment_seq", "payments"}
+    };
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (String[] sequence : SEQUENCES) {
+            int updated = jdbcTemplate.update(
+                "UPDATE " + sequence[0] + " SET next_val = " +
+                "(SELECT COALESCE(MAX(id), 0) + ? FROM " + sequence[1] + ") " +
+                "WHERE next_val < (SELECT COALESCE(MAX(id), 0) + ? FROM " + sequence[1] + ")",
+                ALLOCATION_SIZE, ALLOCATION_SIZE);
+            if (updated > 0) {
+                log.info("Secuencia {} ajustada por encima de los IDs existentes de {}", sequence[0], sequence[1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.ads.ecommerce.order.config;
+
+import org.springframework.cloud.openfeign.CircuitBreakerNameResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Circuit breaker, bulkhead y time limiter por cliente Feign.
+ * Todas las llamadas de un cliente comparten la instancia con el nombre del
+ * servicio (customer-service, product-service), configurada en
+ * resilience4j.*.instances.<servicio> de application.properties.
+ * Métricas: resilience4j.circuitbreaker.state / .not.permitted.calls,
+ * resilience4j.bulkhead.available.concurrent.calls y order.client.bulkhead.rejected.
+ */
+@Configuration
+public class ResilienceConfig {
+    
+    @Bean
+    public CircuitBreakerNameResolver circuitBreakerNameResolver() {
+        return (feignClientName, target, method) -> feignClientName;
+    }
+    
+    /**
+     * Cuenta las llamadas rechazadas por bulkhead lleno, por cliente
+     */
+    @Bean
+    public RegistryEventConsumer<Bulkhead> bulkheadRejectionCounter(MeterRegistry meterRegistry) {
+        return new RegistryEventConsumer<>() {
+            @Override
+            public void onEntryAddedEvent(EntryAddedEvent<Bulkhead> event) {
+                Bulkhead bulkhead = event.getAddedEntry();
+                Counter rejected = Counter.builder("order.client.bulkhead.rejected")
+                    .description("Llamadas rechazadas por alcanzar el máximo de concurrencia del cliente")
+                    .tag("client", bulkhead.getName())
+                    .register(meterRegistry);
+                bulkhead.getEventPublisher().onCallRejected(rejectedCall -> rejected.increment());
+            }
+            
+            @Override
+            public void onEntryRemovedEvent(EntryRemovedEvent<Bulkhead> event) {
+            }
+            
+            @Override
+            public void onEntryReplacedEvent(EntryReplacedEvent<Bulkhead> event) {
+            }
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package com.ads.ecommerce.order.config;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rellena total_paid de las órdenes anteriores a la columna: ddl-auto=update la
+ * añade con 0 en todas las filas, y las órdenes ya pagadas aparecerían como
+ * pendientes de pago. Solo toca órdenes con total_paid = 0 que tienen pagos,
+ * así que es idempotente y después de la primera vez no cambia nada.
+ * Se ejecuta al terminar de crear los beans (el esquema ya está actualizado)
+ * y antes de que el servidor web acepte peticiones.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class TotalPaidBackfill implements SmartInitializingSingleton {
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public void afterSingletonsInstantiated() {
+        int updated = jdbcTemplate.update(
+            "UPDATE sale_orders SET total_paid = " +
+            "(SELECT COALESCE(SUM(p.amount), 0) FROM payments p WHERE p.sale_order_id = sale_orders.id) " +
+            "WHERE total_paid = 0 AND EXISTS (SELECT 1 FROM payments p WHERE p.sale_order_id = sale_orders.id)");
+        if (updated > 0) {
+            log.info("Backfilled total_paid from payments for {} orders", updated);
+        }
+    }
+}
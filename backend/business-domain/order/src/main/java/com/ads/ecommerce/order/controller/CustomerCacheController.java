@@ -0,0 +1,38 @@
+package com.ads.ecommerce.order.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ads.ecommerce.order.cache.CustomerCache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Invalidaciones enviadas por customer-service cuando cambia un cliente
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/cache/customers")
+@RequiredArgsConstructor
+public class CustomerCacheController {
+    
+    private final CustomerCache customerCache;
+    
+    @DeleteMapping("/{customerId}")
+    public ResponseEntity<Void> invalidateCustomer(@PathVariable Long customerId) {
+        log.info("DELETE /api/v1/cache/customers/{}", customerId);
+        customerCache.invalidate(customerId);
+        return ResponseEntity.noContent().build();
+    }
+    
+    @DeleteMapping
+    public ResponseEntity<Void> invalidateAll() {
+        log.info("DELETE /api/v1/cache/customers");
+        customerCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,21 +1,42 @@
 package com.ads.ecommerce.order.controller;
 
-import java.util.List;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.ads.ecommerce.order.dto.CursorPage;
+import com.ads.ecommerce.order.dto.OrderBatchRequest;
+import com.ads.ecommerce.order.dto.OrderBatchResponse;
+import com.ads.ecommerce.order.dto.OrderIntakeResponse;
 import com.ads.ecommerce.order.dto.OrderRequest;
 import com.ads.ecommerce.order.dto.OrderResponse;
 import com.ads.ecommerce.order.dto.PaymentRequest;
+import com.ads.ecommerce.order.exception.OrderNotFoundException;
 import com.ads.ecommerce.order.model.OrderStatus;
+import com.ads.ecommerce.order.service.IdempotencyService;
+import com.ads.ecommerce.order.service.OrderBatchService;
+import com.ads.ecommerce.order.service.OrderExportService;
+import com.ads.ecommerce.order.service.OrderIntakeService;
 import com.ads.ecommerce.order.service.OrderService;
 
 import jakarta.validation.Valid;
@@ -29,13 +50,72 @@ import lombok.extern.slf4j.Slf4j;
 public class OrderController {
     
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
+    private final OrderBatchService orderBatchService;
+    private final OrderIntakeService orderIntakeService;
+    private final IdempotencyService idempotencyService;
     
     @PostMapping
     public ResponseEntity<OrderResponse> createOrder(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @RequestBody @Valid OrderRequest request) {
         log.info("POST /api/v1/orders");
-        OrderResponse response = orderService.createOrder(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        IdempotencyService.Result<OrderResponse> result = idempotencyService.execute(
+            "create-order", idempotencyKey, request, OrderResponse.class,
+            storeKey -> orderService.createOrder(request, storeKey),
+            orderService::findOrderCreatedWith);
+        return ResponseEntity.status(HttpStatus.CREATED)
+            .headers(replayedHeader(result))
+            .body(result.getBody());
+    }
+    
+    /**
+     * Alta asíncrona: responde 202 con el ID de seguimiento; el resultado se consulta en
+     * /intake/{trackingId} o se espera en /intake/{trackingId}/result
+     */
+    @PostMapping("/async")
+    public ResponseEntity<OrderIntakeResponse> submitOrder(
+            @RequestBody @Valid OrderRequest request) {
+        log.info("POST /api/v1/orders/async");
+        OrderIntakeResponse response = orderIntakeService.submit(request);
+        return ResponseEntity.accepted()
+            .location(URI.create("/api/v1/orders/intake/" + response.getTrackingId()))
+            .body(response);
+    }
+    
+    @GetMapping("/intake/{trackingId}")
+    public ResponseEntity<OrderIntakeResponse> getIntakeStatus(@PathVariable String trackingId) {
+        log.info("GET /api/v1/orders/intake/{}", trackingId);
+        OrderIntakeResponse response = orderIntakeService.getStatus(trackingId)
+            .orElseThrow(() -> new OrderNotFoundException("Seguimiento no encontrado: " + trackingId));
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Espera (sin bloquear un hilo de Tomcat) a que la orden termine de procesarse,
+     * hasta waitSeconds; si no ha terminado devuelve el estado actual
+     */
+    @GetMapping("/intake/{trackingId}/result")
+    public DeferredResult<OrderIntakeResponse> awaitIntakeResult(
+            @PathVariable String trackingId,
+            @RequestParam(defaultValue = "30") long waitSeconds) {
+        log.info("GET /api/v1/orders/intake/{}/result", trackingId);
+        CompletableFuture<OrderIntakeResponse> completion = orderIntakeService.awaitCompletion(trackingId)
+            .orElseThrow(() -> new OrderNotFoundException("Seguimiento no encontrado: " + trackingId));
+        
+        long timeoutMs = TimeUnit.SECONDS.toMillis(Math.min(Math.max(waitSeconds, 1), 60));
+        DeferredResult<OrderIntakeResponse> result = new DeferredResult<>(timeoutMs);
+        result.onTimeout(() -> orderIntakeService.getStatus(trackingId).ifPresent(result::setResult));
+        completion.thenAccept(result::setResult);
+        return result;
+    }
+    
+    @PostMapping("/batch")
+    public ResponseEntity<OrderBatchResponse> createOrders(
+            @RequestBody @Valid OrderBatchRequest request) {
+        log.info("POST /api/v1/orders/batch ({} orders)", request.getOrders().size());
+        OrderBatchResponse response = orderBatchService.createOrders(request);
+        return ResponseEntity.ok(response);
     }
     
     @GetMapping("/{id}")
@@ -53,35 +133,98 @@ public class OrderController {
     }
     
     @GetMapping
-    public ResponseEntity<List<OrderResponse>> getAllOrders() {
-        log.info("GET /api/v1/orders");
-        List<OrderResponse> response = orderService.getAllOrders();
+    public ResponseEntity<CursorPage<OrderResponse>> getAllOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        log.info("GET /api/v1/orders?cursor={}&size={}", cursor, size);
+        CursorPage<OrderResponse> response = orderService.getAllOrders(cursor, size);
         return ResponseEntity.ok(response);
     }
     
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "NDJSON") OrderExportService.ExportFormat format) {
+        log.info("GET /api/v1/orders/export?from={}&to={}&format={}", from, to, format);
+        
+        MediaType contentType = format == OrderExportService.ExportFormat.CSV
+            ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+            : MediaType.APPLICATION_NDJSON;
+        String filename = "orders." + format.name().toLowerCase();
+        
+        StreamingResponseBody body = out -> orderExportService.export(from, to, format, out);
+        return ResponseEntity.ok()
+            .contentType(contentType)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .body(body);
+    }
+    
     @GetMapping("/customer/{customerId}")
-    public ResponseEntity<List<OrderResponse>> getOrdersByCustomer(
-            @PathVariable Long customerId) {
+    public ResponseEntity<CursorPage<OrderResponse>> getOrdersByCustomer(
+            @PathVariable Long customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         log.info("GET /api/v1/orders/customer/{}", customerId);
-        List<OrderResponse> response = orderService.getOrdersByCustomer(customerId);
+        CursorPage<OrderResponse> response = orderService.getOrdersByCustomer(customerId, cursor, size);
         return ResponseEntity.ok(response);
     }
     
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<OrderResponse>> getOrdersByStatus(
-            @PathVariable OrderStatus status) {
+    public ResponseEntity<CursorPage<OrderResponse>> getOrdersByStatus(
+            @PathVariable OrderStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         log.info("GET /api/v1/orders/status/{}", status);
-        List<OrderResponse> response = orderService.getOrdersByStatus(status);
+        CursorPage<OrderResponse> response = orderService.getOrdersByStatus(status, cursor, size);
         return ResponseEntity.ok(response);
     }
     
+    @GetMapping("/pending-payment")
+    public ResponseEntity<CursorPage<OrderResponse>> getOrdersPendingPayment(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        log.info("GET /api/v1/orders/pending-payment");
+        CursorPage<OrderResponse> response = orderService.getOrdersPendingPayment(cursor, size);
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/requires-attention")
+    public ResponseEntity<CursorPage<OrderResponse>> getOrdersRequiringAttention(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        log.info("GET /api/v1/orders/requires-attention");
+        CursorPage<OrderResponse> response = orderService.getOrdersRequiringAttention(cursor, size);
+        return ResponseEntity.ok(response);
+    }
+    
+    @PatchMapping("/{id}/resolve-attention")
+    public ResponseEntity<Void> resolveAttention(@PathVariable Long id) {
+        log.info("PATCH /api/v1/orders/{}/resolve-attention", id);
+        orderService.resolveAttention(id);
+        return ResponseEntity.noContent().build();
+    }
+    
+    @PostMapping("/reconcile-payments")
+    public ResponseEntity<Map<String, Integer>> reconcilePayments() {
+        log.info("POST /api/v1/orders/reconcile-payments");
+        int fixed = orderService.reconcilePaymentTotals();
+        return ResponseEntity.ok(Map.of("reconciled", fixed));
+    }
+    
     @PostMapping("/{id}/payments")
     public ResponseEntity<OrderResponse> addPayment(
             @PathVariable Long id,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @RequestBody @Valid PaymentRequest request) {
         log.info("POST /api/v1/orders/{}/payments", id);
-        OrderResponse response = orderService.addPayment(id, request);
-        return ResponseEntity.ok(response);
+        IdempotencyService.Result<OrderResponse> result = idempotencyService.execute(
+            "add-payment:" + id, idempotencyKey, request, OrderResponse.class,
+            storeKey -> orderService.addPayment(id, request, storeKey),
+            orderService::findOrderPaidWith);
+        return ResponseEntity.ok()
+            .headers(replayedHeader(result))
+            .body(result.getBody());
     }
     
     @PatchMapping("/{id}/confirm")
@@ -111,4 +254,12 @@ public class OrderController {
         orderService.deliverOrder(id);
         return ResponseEntity.noContent().build();
     }
-}
+    
+    private HttpHeaders replayedHeader(IdempotencyService.Result<?> result) {
+        HttpHeaders headers = new HttpHeaders();
+        if (result.isReplayed()) {
+            headers.set(IdempotencyService.REPLAYED_HEADER, "true");
+        }
+        return headers;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.ads.ecommerce.order.dto;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBatchRequest {
+    
+    @NotEmpty(message = "Debe incluir al menos una orden")
+    @Valid
+    private List<OrderRequest> orders;
+}
@@ -0,0 +1,36 @@
+package com.ads.ecommerce.order.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBatchResponse {
+    
+    private int accepted;
+    private int rejected;
+    private List<OrderBatchResult> results;
+    
+    /**
+     * Resultado de una orden del lote, en la misma posición que en la petición
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OrderBatchResult {
+        private int index;
+        private boolean success;
+        private Long orderId;
+        private String orderNumber;
+        private BigDecimal total;
+        private String error;
+    }
+}
@@ -0,0 +1,28 @@
+package com.ads.ecommerce.order.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.ads.ecommerce.order.model.OrderStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderExportRow {
+    private Long id;
+    private String orderNumber;
+    private Long customerId;
+    private BigDecimal subtotal;
+    private BigDecimal discount;
+    private BigDecimal total;
+    private BigDecimal totalPaid;
+    private OrderStatus status;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
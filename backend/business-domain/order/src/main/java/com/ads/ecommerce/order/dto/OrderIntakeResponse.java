@@ -0,0 +1,29 @@
+package com.ads.ecommerce.order.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderIntakeResponse {
+    
+    private String trackingId;
+    private IntakeStatus status;
+    private LocalDateTime submittedAt;
+    private LocalDateTime completedAt;
+    private OrderResponse order;
+    private String error;
+    
+    public enum IntakeStatus {
+        QUEUED,         // En cola, pendiente de procesar
+        PROCESSING,     // Un worker la está creando
+        COMPLETED,      // Orden creada
+        FAILED          // Rechazada durante el procesamiento
+    }
+}
@@ -27,6 +27,7 @@ public class OrderResponse {
     private List<OrderLineResponse> items;
     private List<PaymentResponse> payments;
     private String notes;
+    private String attentionReason;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.ads.ecommerce.order.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockBatchRequest {
+    
+    /** Identificador del lote: product-service no aplica dos veces el mismo requestId */
+    private String requestId;
+    
+    private List<StockBatchItem> items = new ArrayList<>();
+    
+    public void add(Long productId, Integer quantity, StockOperation operation) {
+        items.add(new StockBatchItem(productId, quantity, operation));
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StockBatchItem {
+        private Long productId;
+        private Integer quantity;
+        private StockOperation operation;
+    }
+    
+    public enum StockOperation {
+        ADD,        // Devolver stock
+        SUBTRACT    // Reservar stock
+    }
+}
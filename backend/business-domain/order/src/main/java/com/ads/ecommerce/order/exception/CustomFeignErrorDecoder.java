@@ -1,5 +1,16 @@
 package com.ads.ecommerce.order.exception;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+
+import com.ads.ecommerce.order.client.NegotiatedJacksonDecoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
 import feign.Response;
 import feign.codec.ErrorDecoder;
 import lombok.extern.slf4j.Slf4j;
@@ -7,6 +18,9 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class CustomFeignErrorDecoder implements ErrorDecoder {
 
+    private static final ObjectMapper SMILE_READER = new SmileMapper();
+    private static final ObjectMapper JSON_WRITER = new ObjectMapper();
+    
     private final ErrorDecoder defaultDecoder = new Default();
     
     @Override
@@ -17,11 +31,30 @@ public class CustomFeignErrorDecoder implements ErrorDecoder {
             case 400:
                 return new IllegalArgumentException("Bad Request al servicio externo: " + methodKey);
             case 404:
-                return new RuntimeException("Recurso no encontrado en servicio externo: " + methodKey);
+                return new DownstreamNotFoundException("Recurso no encontrado en servicio externo: " + methodKey);
             case 503:
                 return new RuntimeException("Servicio no disponible: " + methodKey);
             default:
-                return defaultDecoder.decode(methodKey, response);
+                return defaultDecoder.decode(methodKey, asJson(response));
+        }
+    }
+    
+    /**
+     * Los cuerpos de error en Smile se pasan a JSON para que el mensaje de FeignException sea legible
+     */
+    private Response asJson(Response response) {
+        if (response.body() == null || !NegotiatedJacksonDecoder.isSmile(response)) {
+            return response;
+        }
+        try (InputStream body = response.body().asInputStream()) {
+            byte[] json = JSON_WRITER.writeValueAsBytes(SMILE_READER.readTree(body));
+            return response.toBuilder()
+                .headers(Map.of(HttpHeaders.CONTENT_TYPE, List.of("application/json")))
+                .body(json)
+                .build();
+        } catch (IOException e) {
+            log.warn("Could not convert Smile error body to JSON: {}", e.getMessage());
+            return response;
         }
     }
 }
\ No newline at end of file
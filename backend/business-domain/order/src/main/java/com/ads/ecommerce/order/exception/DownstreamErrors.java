@@ -0,0 +1,58 @@
+package com.ads.ecommerce.order.exception;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.cloud.client.circuitbreaker.NoFallbackAvailableException;
+
+import feign.FeignException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+
+/**
+ * Con el circuit breaker de Feign activo, los errores de los clientes llegan
+ * envueltos en NoFallbackAvailableException; aquí se obtiene la causa real
+ * (FeignException, CallNotPermittedException, BulkheadFullException, TimeoutException...)
+ */
+public final class DownstreamErrors {
+    
+    private DownstreamErrors() {
+    }
+    
+    public static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while ((current instanceof NoFallbackAvailableException
+                || current instanceof CompletionException
+                || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+    
+    public static String message(Throwable error) {
+        Throwable cause = unwrap(error);
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+    
+    /**
+     * Stock insuficiente, petición inválida o recurso inexistente: repetir la
+     * misma llamada no cambiaría el resultado
+     */
+    public static boolean isRejection(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof IllegalArgumentException || cause instanceof DownstreamNotFoundException) {
+            return true;  // CustomFeignErrorDecoder traduce los 400 y 404
+        }
+        return cause instanceof FeignException feign && feign.status() >= 400 && feign.status() < 500
+            && feign.status() != 408 && feign.status() != 409 && feign.status() != 429;
+    }
+    
+    /**
+     * Circuit breaker abierto o bulkhead lleno: la llamada ni siquiera se hizo
+     */
+    public static boolean isNotPermitted(Throwable error) {
+        Throwable cause = unwrap(error);
+        return cause instanceof CallNotPermittedException || cause instanceof BulkheadFullException;
+    }
+}
@@ -0,0 +1,11 @@
+package com.ads.ecommerce.order.exception;
+
+/**
+ * 404 de customer-service o product-service (p. ej. un producto borrado).
+ * No es un fallo del servicio: no cuenta para el circuit breaker y no se reintenta.
+ */
+public class DownstreamNotFoundException extends RuntimeException {
+    public DownstreamNotFoundException(String message) {
+        super(message);
+    }
+}
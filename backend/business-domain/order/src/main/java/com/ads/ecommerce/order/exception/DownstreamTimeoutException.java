@@ -0,0 +1,7 @@
+package com.ads.ecommerce.order.exception;
+
+public class DownstreamTimeoutException extends RuntimeException {
+    public DownstreamTimeoutException(String message) {
+        super(message);
+    }
+}
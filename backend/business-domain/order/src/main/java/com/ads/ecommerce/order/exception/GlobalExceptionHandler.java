@@ -4,7 +4,12 @@ import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
+import org.springframework.cloud.client.circuitbreaker.NoFallbackAvailableException;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
@@ -13,6 +18,8 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import feign.FeignException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -61,6 +68,83 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
     }
     
+    /**
+     * Otra operación modificó la orden entre la lectura y la escritura (@Version de SaleOrder)
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLock(OptimisticLockingFailureException ex) {
+        log.warn("Concurrent modification: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.CONFLICT.value(),
+            "La orden fue modificada por otra operación, consulte su estado y reintente",
+            LocalDateTime.now()
+        );
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+    
+    @ExceptionHandler(DownstreamTimeoutException.class)
+    public ResponseEntity<ErrorResponse> handleDownstreamTimeout(DownstreamTimeoutException ex) {
+        log.error("Downstream timeout: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.GATEWAY_TIMEOUT.value(),
+            ex.getMessage(),
+            LocalDateTime.now()
+        );
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(error);
+    }
+    
+    @ExceptionHandler(DownstreamNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleDownstreamNotFound(DownstreamNotFoundException ex) {
+        log.error("Downstream resource not found: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.NOT_FOUND.value(),
+            "Recurso no encontrado en servicio externo",
+            LocalDateTime.now()
+        );
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+    }
+    
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyConflict(IdempotencyConflictException ex) {
+        log.warn("Idempotency conflict: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.CONFLICT.value(),
+            ex.getMessage(),
+            LocalDateTime.now()
+        );
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+    
+    @ExceptionHandler(IntakeQueueFullException.class)
+    public ResponseEntity<ErrorResponse> handleIntakeQueueFull(IntakeQueueFullException ex) {
+        log.warn("Intake rejected: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.SERVICE_UNAVAILABLE.value(),
+            ex.getMessage(),
+            LocalDateTime.now()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "5")
+            .body(error);
+    }
+    
+    /**
+     * Pool de validación (orderValidationExecutor) lleno: el servicio está saturado,
+     * se rechaza como la cola de altas en lugar de responder 500
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleTaskRejected(TaskRejectedException ex) {
+        log.warn("Validation executor saturated: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.SERVICE_UNAVAILABLE.value(),
+            "Servicio saturado, reintente más tarde",
+            LocalDateTime.now()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "5")
+            .body(error);
+    }
+    
     @ExceptionHandler(FeignException.class)
     public ResponseEntity<ErrorResponse> handleFeignException(FeignException ex) {
         log.error("Feign client error: Status={}, Message={}", ex.status(), ex.getMessage());
@@ -86,6 +170,48 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(status).body(error);
     }
     
+    /**
+     * Errores de CustomerClient/ProductClient a través del circuit breaker
+     */
+    @ExceptionHandler(NoFallbackAvailableException.class)
+    public ResponseEntity<?> handleCircuitBreaker(NoFallbackAvailableException ex) {
+        Throwable cause = DownstreamErrors.unwrap(ex);
+        if (cause instanceof FeignException feign) {
+            return handleFeignException(feign);
+        }
+        if (cause instanceof IllegalArgumentException illegalArgument) {
+            return handleIllegalArgument(illegalArgument);
+        }
+        if (cause instanceof DownstreamNotFoundException notFound) {
+            return handleDownstreamNotFound(notFound);
+        }
+        
+        HttpStatus status = HttpStatus.BAD_GATEWAY;
+        String message = "Error al comunicarse con otro servicio";
+        if (cause instanceof CallNotPermittedException) {
+            status = HttpStatus.SERVICE_UNAVAILABLE;
+            message = "Servicio externo no disponible temporalmente";
+        } else if (cause instanceof BulkheadFullException) {
+            status = HttpStatus.SERVICE_UNAVAILABLE;
+            message = "Servicio externo saturado, reintente más tarde";
+        } else if (cause instanceof TimeoutException) {
+            status = HttpStatus.GATEWAY_TIMEOUT;
+            message = "El servicio externo no respondió a tiempo";
+        }
+        log.error("Downstream call failed ({}): {}", status.value(), DownstreamErrors.message(cause));
+        
+        ErrorResponse error = new ErrorResponse(
+            status.value(),
+            message,
+            LocalDateTime.now()
+        );
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+        if (status == HttpStatus.SERVICE_UNAVAILABLE) {
+            response.header(HttpHeaders.RETRY_AFTER, "5");
+        }
+        return response.body(error);
+    }
+    
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, String>> handleValidation(
             MethodArgumentNotValidException ex) {
@@ -0,0 +1,7 @@
+package com.ads.ecommerce.order.exception;
+
+public class IntakeQueueFullException extends RuntimeException {
+    public IntakeQueueFullException(String message) {
+        super(message);
+    }
+}
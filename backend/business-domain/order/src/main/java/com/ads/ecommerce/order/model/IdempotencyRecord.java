@@ -0,0 +1,54 @@
+package com.ads.ecommerce.order.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Respuesta guardada para una Idempotency-Key. La clave incluye la operación
+ * (p. ej. "create-order:abc"), de modo que la misma clave en otra operación no choca.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+    @Index(name = "idx_idempotency_expires", columnList = "expiresAt")
+})
+public class IdempotencyRecord {
+    
+    @Id
+    @Column(length = 150)
+    private String idempotencyKey;
+    
+    @Column(nullable = false, length = 64)
+    private String requestHash;  // SHA-256 del cuerpo: la misma clave con otro cuerpo es un error
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+    
+    @Lob
+    private String responseBody;  // JSON de la respuesta, solo si COMPLETED
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+    
+    public enum Status {
+        IN_PROGRESS,    // La primera petición aún se está procesando
+        COMPLETED       // Respuesta guardada
+    }
+}
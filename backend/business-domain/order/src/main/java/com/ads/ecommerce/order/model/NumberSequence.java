@@ -0,0 +1,29 @@
+package com.ads.ecommerce.order.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Contador persistente del que se reservan bloques de números (hi/lo).
+ * Una fila por secuencia, p. ej. "ORD-2026"; se accede con el
+ * SequenceBlockAllocator del módulo common.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "number_sequences")
+public class NumberSequence {
+    
+    @Id
+    @Column(length = 50)
+    private String name;
+    
+    @Column(nullable = false)
+    private Long nextValue;  // Primer valor aún no reservado por ninguna instancia
+}
@@ -14,7 +14,8 @@ import java.math.BigDecimal;
 public class OrderLine {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_line_seq")
+    @SequenceGenerator(name = "order_line_seq", sequenceName = "order_line_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(optional = false)
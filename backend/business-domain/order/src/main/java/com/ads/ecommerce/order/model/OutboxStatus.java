@@ -0,0 +1,8 @@
+package com.ads.ecommerce.order.model;
+
+public enum OutboxStatus {
+    PENDING,        // Escrito con la orden, pendiente de enviar
+    SENDING,        // Asignado a un lote (batchId): enviándose (con lease) o esperando reintento
+    SENT,           // Aplicado en product-service
+    FAILED          // Rechazado o agotados los reintentos
+}
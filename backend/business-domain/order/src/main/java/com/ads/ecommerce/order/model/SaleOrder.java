@@ -3,6 +3,7 @@ package com.ads.ecommerce.order.model;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import jakarta.persistence.*;
@@ -15,11 +16,14 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "sale_orders")
+@Table(name = "sale_orders", indexes = {
+    @Index(name = "idx_sale_orders_idempotency_key", columnList = "idempotencyKey")
+})
 public class SaleOrder {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sale_order_seq")
+    @SequenceGenerator(name = "sale_order_seq", sequenceName = "sale_order_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false, unique = true, length = 50)
@@ -37,25 +41,40 @@ public class SaleOrder {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal total;  // Total a pagar
     
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal totalPaid = BigDecimal.ZERO;  // Suma de pagos, mantenida en addPayment
+    
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private OrderStatus status = OrderStatus.PENDING;
     
     @OneToMany(mappedBy = "saleOrder", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
     private List<OrderLine> orderLines = new ArrayList<>();
     
     @OneToMany(mappedBy = "saleOrder", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
     private List<Payment> payments = new ArrayList<>();
     
     @Column(length = 500)
     private String notes;  // Notas adicionales
     
+    @Column(length = 200)
+    private String attentionReason;  // Incidencia a revisar a mano (p. ej. stock sin reservar); null si no hay
+    
+    @Column(length = 150)
+    private String idempotencyKey;  // Idempotency-Key con la que se creó (ver IdempotencyService)
+    
     @CreationTimestamp
     private LocalDateTime createdAt;
     
     @UpdateTimestamp
     private LocalDateTime updatedAt;
     
+    @Version
+    @Column(nullable = false)
+    private Long version;  // Control de concurrencia optimista (pagos, cambios de estado, StockOutboxRelay)
+    
     // ============================================================
     // LÓGICA DE NEGOCIO
     // ============================================================
@@ -75,6 +94,7 @@ public class SaleOrder {
     public void addPayment(Payment payment) {
         payments.add(payment);
         payment.setSaleOrder(this);
+        this.totalPaid = this.totalPaid.add(payment.getAmount());
         checkIfFullyPaid();
     }
     
@@ -104,19 +124,32 @@ public class SaleOrder {
     }
     
     /**
-     * Obtiene el total pagado
+     * Obtiene el monto pendiente de pago
      */
-    public BigDecimal getTotalPaid() {
-        return payments.stream()
+    public BigDecimal getPendingAmount() {
+        return this.total.subtract(this.totalPaid);
+    }
+    
+    /**
+     * Recalcula el total pagado a partir de los pagos (carga la colección).
+     * Devuelve true si el valor almacenado no coincidía y fue corregido.
+     */
+    public boolean reconcileTotalPaid() {
+        BigDecimal sum = payments.stream()
             .map(Payment::getAmount)
             .reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (sum.compareTo(this.totalPaid) == 0) {
+            return false;
+        }
+        this.totalPaid = sum;
+        return true;
     }
     
     /**
      * Verifica si la orden está totalmente pagada
      */
     public boolean isFullyPaid() {
-        return getTotalPaid().compareTo(this.total) >= 0;
+        return this.totalPaid.compareTo(this.total) >= 0;
     }
     
     /**
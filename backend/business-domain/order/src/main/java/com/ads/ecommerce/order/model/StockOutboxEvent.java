@@ -0,0 +1,81 @@
+package com.ads.ecommerce.order.model;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Movimiento de stock pendiente de enviar a product-service (patrón outbox).
+ * Se escribe en la misma transacción que la orden y lo entrega StockOutboxRelay.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "stock_outbox", indexes = {
+    @Index(name = "idx_stock_outbox_status", columnList = "status, id"),
+    @Index(name = "idx_stock_outbox_batch", columnList = "batchId"),
+    @Index(name = "idx_stock_outbox_order", columnList = "orderId, status")
+})
+public class StockOutboxEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_outbox_seq")
+    @SequenceGenerator(name = "stock_outbox_seq", sequenceName = "stock_outbox_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long orderId;
+    
+    @Column(nullable = false)
+    private Long productId;
+    
+    @Column(nullable = false)
+    private Integer delta;  // Negativo: reserva de stock; positivo: devolución
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private OutboxStatus status = OutboxStatus.PENDING;
+    
+    @Column(length = 64)
+    private String batchId;  // Lote en el que se envía; se reutiliza en los reintentos
+    
+    @Column(length = 64)
+    private String claimedBy;  // Instancia del relay que está enviando el lote; null si está libre
+    
+    private LocalDateTime claimedAt;  // Inicio del lease; caducado, otra instancia puede retomar el lote
+    
+    private LocalDateTime nextAttemptAt;  // Backoff: el lote no se reintenta antes de esta hora
+    
+    @Column(nullable = false)
+    private Integer attempts = 0;
+    
+    @Column(length = 500)
+    private String lastError;
+    
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime sentAt;
+    
+    public StockOutboxEvent(Long orderId, Long productId, Integer delta) {
+        this.orderId = orderId;
+        this.productId = productId;
+        this.delta = delta;
+    }
+}
@@ -0,0 +1,52 @@
+package com.ads.ecommerce.order.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.ads.ecommerce.order.model.IdempotencyRecord;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    
+    /**
+     * Alta de una clave nueva; si otra instancia la insertó a la vez falla por clave duplicada
+     */
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, request_hash, status, created_at, expires_at) " +
+                   "VALUES (:key, :requestHash, 'IN_PROGRESS', :now, :expiresAt)", nativeQuery = true)
+    int insertInProgress(@Param("key") String key, @Param("requestHash") String requestHash,
+                         @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+    
+    /**
+     * Retoma una clave caducada o abandonada, solo si sigue como se leyó (mismo createdAt)
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.requestHash = :requestHash, r.status = :inProgress, " +
+           "r.responseBody = NULL, r.createdAt = :now, r.expiresAt = :expiresAt " +
+           "WHERE r.idempotencyKey = :key AND r.createdAt = :seenCreatedAt")
+    int takeOver(@Param("key") String key, @Param("seenCreatedAt") LocalDateTime seenCreatedAt,
+                 @Param("requestHash") String requestHash, @Param("inProgress") IdempotencyRecord.Status inProgress,
+                 @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+    
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = :completed, r.responseBody = :body " +
+           "WHERE r.idempotencyKey = :key AND r.createdAt = :claimedAt AND r.status = :inProgress")
+    int complete(@Param("key") String key, @Param("claimedAt") LocalDateTime claimedAt,
+                 @Param("inProgress") IdempotencyRecord.Status inProgress,
+                 @Param("completed") IdempotencyRecord.Status completed, @Param("body") String body);
+    
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r " +
+           "WHERE r.idempotencyKey = :key AND r.createdAt = :claimedAt AND r.status = :inProgress")
+    int release(@Param("key") String key, @Param("claimedAt") LocalDateTime claimedAt,
+                @Param("inProgress") IdempotencyRecord.Status inProgress);
+    
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
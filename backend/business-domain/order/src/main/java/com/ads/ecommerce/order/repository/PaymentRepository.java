@@ -1,6 +1,7 @@
 package com.ads.ecommerce.order.repository;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
@@ -14,4 +15,6 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     List<Payment> findBySaleOrder(SaleOrder saleOrder);
     
     List<Payment> findBySaleOrderId(Long saleOrderId);
+    
+    Optional<Payment> findFirstByIdempotencyKeyOrderByIdDesc(String idempotencyKey);
 }
@@ -1,22 +1,35 @@
 package com.ads.ecommerce.order.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.ads.ecommerce.order.model.OrderStatus;
 import com.ads.ecommerce.order.model.SaleOrder;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface SaleOrderRepository extends JpaRepository<SaleOrder, Long> {
     
     Optional<SaleOrder> findByOrderNumber(String orderNumber);
     
+    Optional<SaleOrder> findFirstByIdempotencyKeyOrderByIdDesc(String idempotencyKey);
+    
     List<SaleOrder> findByCustomerId(Long customerId);
     
     List<SaleOrder> findByStatus(OrderStatus status);
@@ -29,5 +42,102 @@ public interface SaleOrderRepository extends JpaRepository<SaleOrder, Long> {
     List<SaleOrder> findByDateRange(@Param("startDate") LocalDateTime startDate, 
                                     @Param("endDate") LocalDateTime endDate);
     
+    /**
+     * Recorre las órdenes del rango fila a fila (requiere transacción abierta).
+     * Con MySQL, fetch size Integer.MIN_VALUE hace que el driver transmita el
+     * resultado en streaming solo para esta consulta; mientras el stream está
+     * abierto la conexión no admite otras sentencias.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM SaleOrder o WHERE o.createdAt BETWEEN :startDate AND :endDate ORDER BY o.id")
+    Stream<SaleOrder> streamByDateRange(@Param("startDate") LocalDateTime startDate,
+                                        @Param("endDate") LocalDateTime endDate);
+    
+    // Paginación por cursor (keyset sobre el ID)
+    
+    @Query("SELECT o FROM SaleOrder o WHERE o.id > :afterId ORDER BY o.id")
+    List<SaleOrder> findPage(@Param("afterId") Long afterId, Limit limit);
+    
+    @Query("SELECT o FROM SaleOrder o WHERE o.customerId = :customerId AND o.id > :afterId ORDER BY o.id")
+    List<SaleOrder> findPageByCustomerId(@Param("customerId") Long customerId,
+                                         @Param("afterId") Long afterId, Limit limit);
+    
+    @Query("SELECT o FROM SaleOrder o WHERE o.status = :status AND o.id > :afterId ORDER BY o.id")
+    List<SaleOrder> findPageByStatus(@Param("status") OrderStatus status,
+                                     @Param("afterId") Long afterId, Limit limit);
+    
+    // Carga de colecciones en bloque: una consulta por colección para toda la página,
+    // sin combinar líneas y pagos en el mismo JOIN (evita el producto cartesiano)
+    
+    @Query("SELECT DISTINCT o FROM SaleOrder o LEFT JOIN FETCH o.orderLines WHERE o IN :orders")
+    List<SaleOrder> fetchOrderLines(@Param("orders") Collection<SaleOrder> orders);
+    
+    @Query("SELECT DISTINCT o FROM SaleOrder o LEFT JOIN FETCH o.payments WHERE o IN :orders")
+    List<SaleOrder> fetchPayments(@Param("orders") Collection<SaleOrder> orders);
+    
+    /**
+     * Inicializa líneas y pagos de las órdenes ya cargadas con dos consultas en total
+     */
+    default List<SaleOrder> fetchCollections(List<SaleOrder> orders) {
+        if (!orders.isEmpty()) {
+            fetchOrderLines(orders);
+            fetchPayments(orders);
+        }
+        return orders;
+    }
+    
+    /**
+     * Órdenes cuyo total pagado almacenado no coincide con la suma de sus pagos
+     */
+    @Query("SELECT o FROM SaleOrder o WHERE o.totalPaid <> " +
+           "(SELECT COALESCE(SUM(p.amount), 0) FROM Payment p WHERE p.saleOrder = o)")
+    List<SaleOrder> findWithInconsistentTotalPaid();
+    
+    @Query("SELECT o FROM SaleOrder o WHERE o.status <> com.ads.ecommerce.order.model.OrderStatus.CANCELLED " +
+           "AND o.totalPaid < o.total AND o.id > :afterId ORDER BY o.id")
+    List<SaleOrder> findPendingPaymentPage(@Param("afterId") Long afterId, Limit limit);
+    
+    @Query("SELECT o FROM SaleOrder o WHERE o.attentionReason IS NOT NULL AND o.id > :afterId ORDER BY o.id")
+    List<SaleOrder> findRequiringAttentionPage(@Param("afterId") Long afterId, Limit limit);
+    
+    @Query("SELECT o.status FROM SaleOrder o WHERE o.id = :id")
+    Optional<OrderStatus> findStatusById(@Param("id") Long id);
+    
+    // Bloqueo de la orden al cancelarla (OrderService) y al confirmar o rechazar sus
+    // reservas de stock (StockOutboxRelay): una cancelación ve la reserva ya resuelta,
+    // o el relay ve la orden ya cancelada y devuelve el stock él mismo
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM SaleOrder o WHERE o.id = :id")
+    Optional<SaleOrder> findByIdForUpdate(@Param("id") Long id);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM SaleOrder o WHERE o.id IN :ids ORDER BY o.id")
+    List<SaleOrder> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+    
+    // UPDATE directos de StockOutboxRelay: suben la versión, así que guardar una
+    // SaleOrder leída antes falla por conflicto en vez de deshacer el cambio
+    
+    /**
+     * Cancela la orden solo si sigue pendiente y sin ningún pago (UPDATE condicional:
+     * no pisa un pago o un cambio de estado concurrente). Devuelve 0 si no la canceló.
+     */
+    @Modifying
+    @Query("UPDATE SaleOrder o SET o.status = com.ads.ecommerce.order.model.OrderStatus.CANCELLED, " +
+           "o.updatedAt = :now, o.version = o.version + 1 WHERE o.id = :id " +
+           "AND o.status = com.ads.ecommerce.order.model.OrderStatus.PENDING AND o.totalPaid = 0")
+    int cancelIfPendingAndUnpaid(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE SaleOrder o SET o.attentionReason = :reason, o.updatedAt = :now, o.version = o.version + 1 " +
+           "WHERE o.id = :id")
+    int flagForAttention(@Param("id") Long id, @Param("reason") String reason, @Param("now") LocalDateTime now);
+    
+    @Query("SELECT MAX(o.orderNumber) FROM SaleOrder o WHERE o.orderNumber LIKE CONCAT(:prefix, '%')")
+    Optional<String> findMaxOrderNumberStartingWith(@Param("prefix") String prefix);
+    
     boolean existsByOrderNumber(String orderNumber);
 }
\ No newline at end of file
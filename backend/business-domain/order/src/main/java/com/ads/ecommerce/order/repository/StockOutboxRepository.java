@@ -0,0 +1,118 @@
+package com.ads.ecommerce.order.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.ads.ecommerce.order.model.OutboxStatus;
+import com.ads.ecommerce.order.model.StockOutboxEvent;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface StockOutboxRepository extends JpaRepository<StockOutboxEvent, Long> {
+    
+    /**
+     * Eventos a reclamar para un nuevo lote; las filas ya bloqueadas por otra
+     * instancia del relay se saltan (lock timeout -2 = SKIP LOCKED)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM StockOutboxEvent e WHERE e.status = :status ORDER BY e.id")
+    List<StockOutboxEvent> findForClaim(@Param("status") OutboxStatus status, Limit limit);
+    
+    List<StockOutboxEvent> findByBatchIdAndStatusOrderByIdAsc(String batchId, OutboxStatus status);
+    
+    List<StockOutboxEvent> findByOrderIdAndDeltaLessThan(Long orderId, Integer delta);
+    
+    long countByStatus(OutboxStatus status);
+    
+    // Lotes en SENDING: las transiciones son UPDATE condicionales sobre el estado y el
+    // dueño del lote, nunca un merge de entidades leídas antes
+    
+    /**
+     * Lotes a reenviar: sin dueño o con el lease caducado, y con el backoff cumplido
+     */
+    @Query("SELECT DISTINCT e.batchId FROM StockOutboxEvent e " +
+           "WHERE e.status = com.ads.ecommerce.order.model.OutboxStatus.SENDING " +
+           "AND (e.claimedBy IS NULL OR e.claimedAt < :leaseExpiredBefore) " +
+           "AND (e.nextAttemptAt IS NULL OR e.nextAttemptAt <= :now)")
+    List<String> findRedeliverableBatchIds(@Param("now") LocalDateTime now,
+                                           @Param("leaseExpiredBefore") LocalDateTime leaseExpiredBefore,
+                                           Limit limit);
+    
+    /**
+     * Toma un lote a reenviar. Devuelve 0 si otra instancia lo tomó antes.
+     */
+    @Modifying
+    @Query("UPDATE StockOutboxEvent e SET e.claimedBy = :owner, e.claimedAt = :now " +
+           "WHERE e.batchId = :batchId AND e.status = com.ads.ecommerce.order.model.OutboxStatus.SENDING " +
+           "AND (e.claimedBy IS NULL OR e.claimedAt < :leaseExpiredBefore) " +
+           "AND (e.nextAttemptAt IS NULL OR e.nextAttemptAt <= :now)")
+    int takeOver(@Param("batchId") String batchId, @Param("owner") String owner,
+                 @Param("now") LocalDateTime now, @Param("leaseExpiredBefore") LocalDateTime leaseExpiredBefore);
+    
+    /**
+     * Lote aplicado en product-service, lo haya enviado esta instancia u otra (mismo requestId)
+     */
+    @Modifying
+    @Query("UPDATE StockOutboxEvent e SET e.status = com.ads.ecommerce.order.model.OutboxStatus.SENT, " +
+           "e.sentAt = :now, e.lastError = NULL, e.claimedBy = NULL " +
+           "WHERE e.batchId = :batchId AND e.status = com.ads.ecommerce.order.model.OutboxStatus.SENDING")
+    int markSent(@Param("batchId") String batchId, @Param("now") LocalDateTime now);
+    
+    /**
+     * Libera el lote para reintentarlo a partir de nextAttemptAt, sumando increment intentos
+     */
+    @Modifying
+    @Query("UPDATE StockOutboxEvent e SET e.attempts = e.attempts + :increment, " +
+           "e.nextAttemptAt = :nextAttemptAt, e.lastError = :error, e.claimedBy = NULL " +
+           "WHERE e.batchId = :batchId AND e.status = com.ads.ecommerce.order.model.OutboxStatus.SENDING " +
+           "AND e.claimedBy = :owner")
+    int release(@Param("batchId") String batchId, @Param("owner") String owner,
+                @Param("increment") int increment, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                @Param("error") String error);
+    
+    @Modifying
+    @Query("UPDATE StockOutboxEvent e SET e.status = com.ads.ecommerce.order.model.OutboxStatus.FAILED, " +
+           "e.attempts = e.attempts + :increment, e.lastError = :error, e.claimedBy = NULL " +
+           "WHERE e.batchId = :batchId AND e.status = com.ads.ecommerce.order.model.OutboxStatus.SENDING " +
+           "AND e.claimedBy = :owner")
+    int markFailed(@Param("batchId") String batchId, @Param("owner") String owner,
+                   @Param("increment") int increment, @Param("error") String error);
+    
+    /**
+     * Pasa parte de un lote propio a un lote nuevo (reparto por orden tras un rechazo)
+     */
+    @Modifying
+    @Query("UPDATE StockOutboxEvent e SET e.batchId = :newBatchId " +
+           "WHERE e.id IN :ids AND e.status = com.ads.ecommerce.order.model.OutboxStatus.SENDING " +
+           "AND e.claimedBy = :owner")
+    int moveToBatch(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+                    @Param("newBatchId") String newBatchId);
+    
+    /**
+     * Descarta las reservas aún sin reclamar de una orden cancelada; las que ya están
+     * en un lote (SENDING) no se tocan
+     */
+    @Modifying
+    @Query("UPDATE StockOutboxEvent e SET e.status = com.ads.ecommerce.order.model.OutboxStatus.FAILED, " +
+           "e.lastError = :error " +
+           "WHERE e.orderId = :orderId AND e.status = com.ads.ecommerce.order.model.OutboxStatus.PENDING " +
+           "AND e.delta < 0")
+    int discardPendingReservations(@Param("orderId") Long orderId, @Param("error") String error);
+    
+    @Modifying
+    @Query("DELETE FROM StockOutboxEvent e WHERE e.status = :status AND e.sentAt < :before")
+    int deleteSentBefore(@Param("status") OutboxStatus status, @Param("before") LocalDateTime before);
+}
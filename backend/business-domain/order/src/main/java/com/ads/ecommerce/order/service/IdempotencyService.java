@@ -0,0 +1,336 @@
+package com.ads.ecommerce.order.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ads.ecommerce.order.exception.IdempotencyConflictException;
+import com.ads.ecommerce.order.model.IdempotencyRecord;
+import com.ads.ecommerce.order.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Soporte de la cabecera Idempotency-Key.
+ * La primera petición con una clave ejecuta la operación y guarda su respuesta
+ * (tabla idempotency_keys, con TTL); los reintentos devuelven esa respuesta
+ * consultando primero la caché local y después la tabla.
+ * Los duplicados concurrentes esperan a que termine la primera: en la misma
+ * instancia sobre un CompletableFuture, entre instancias consultando la tabla.
+ * Solo se guardan respuestas correctas; si la operación falla la clave se libera,
+ * pero nunca una vez hecha. Reservar, retomar, completar y liberar son UPDATE/DELETE
+ * condicionados al createdAt de la reserva, así que una instancia que retoma una
+ * clave abandonada no pisa ni es pisada por la que la tenía.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+    
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final long POLL_INTERVAL_MS = 100;
+    
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate requiresNew;
+    private final Cache<String, IdempotencyRecord> completed;
+    private final ConcurrentHashMap<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+    private final Duration ttl;
+    private final long waitTimeoutMs;
+    private final Duration inProgressTimeout;
+    private final Counter replayCounter;
+    
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${order.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${order.idempotency.cache-size:10000}") long cacheSize,
+                              @Value("${order.idempotency.wait-timeout-ms:30000}") long waitTimeoutMs,
+                              @Value("${order.idempotency.in-progress-timeout-ms:120000}") long inProgressTimeoutMs) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ttl = Duration.ofHours(ttlHours);
+        this.completed = Caffeine.newBuilder()
+            .maximumSize(cacheSize)
+            .expireAfterWrite(ttl)
+            .build();
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.inProgressTimeout = Duration.ofMillis(inProgressTimeoutMs);
+        this.replayCounter = Counter.builder("order.idempotency.replays")
+            .description("Peticiones respondidas con la respuesta guardada de su Idempotency-Key")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Ejecuta la operación una sola vez por clave. Sin clave, la ejecuta siempre.
+     * La acción recibe la clave almacenada (null sin cabecera) y debe guardarla en la
+     * entidad que crea, en su misma transacción: si la instancia cae entre ese commit y
+     * el de la respuesta, quien retome la clave recupera el resultado con previousResult
+     * en lugar de repetir la operación.
+     *
+     * @param operation nombre de la operación; forma parte de la clave almacenada
+     * @param previousResult busca el resultado ya creado con la clave almacenada
+     */
+    public <T> Result<T> execute(String operation, String key, Object request, Class<T> responseType,
+                                 Function<String, T> action, Function<String, Optional<T>> previousResult) {
+        if (key == null || key.isBlank()) {
+            return new Result<>(action.apply(null), false);
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(
+                "La " + HEADER + " no puede superar " + MAX_KEY_LENGTH + " caracteres");
+        }
+        String storeKey = operation + ":" + key;
+        String requestHash = hash(request);
+        
+        // 1. Respuesta ya guardada en memoria
+        IdempotencyRecord cached = completed.getIfPresent(storeKey);
+        if (cached != null) {
+            return replay(cached, requestHash, responseType);
+        }
+        
+        // 2. Duplicado concurrente en esta instancia: esperar a la primera petición
+        CompletableFuture<IdempotencyRecord> mine = new CompletableFuture<>();
+        CompletableFuture<IdempotencyRecord> running = inFlight.putIfAbsent(storeKey, mine);
+        if (running != null) {
+            return replay(await(running), requestHash, responseType);
+        }
+        
+        Claim claim = null;
+        boolean succeeded = false;
+        try {
+            // 3. Tabla: respuesta guardada, en curso en otra instancia o clave libre
+            claim = claim(storeKey, requestHash);
+            if (claim.existing() != null) {
+                mine.complete(claim.existing());
+                return replay(claim.existing(), requestHash, responseType);
+            }
+            
+            // 4. Clave abandonada por otra instancia: puede que la operación ya se hiciera
+            Optional<T> previous = claim.abandoned() ? previousResult.apply(storeKey) : Optional.empty();
+            if (previous.isPresent()) {
+                log.warn("Idempotency key {} recovered from a previous execution", storeKey);
+                succeeded = true;
+                mine.complete(complete(storeKey, claim, requestHash, previous.get()));
+                replayCounter.increment();
+                return new Result<>(previous.get(), true);
+            }
+            
+            T response = action.apply(storeKey);
+            succeeded = true;
+            mine.complete(complete(storeKey, claim, requestHash, response));
+            return new Result<>(response, false);
+        
+        } catch (RuntimeException e) {
+            // Solo se libera si la operación no llegó a hacerse
+            if (claim != null && claim.claimedAt() != null && !succeeded) {
+                release(storeKey, claim);
+            }
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(storeKey, mine);
+        }
+    }
+    
+    @Scheduled(cron = "${order.idempotency.purge-cron:0 30 * * * *}")
+    public void purgeExpired() {
+        Integer deleted = requiresNew.execute(status -> repository.deleteExpired(LocalDateTime.now()));
+        log.info("Purged {} expired idempotency keys", deleted);
+    }
+    
+    /**
+     * Reserva la clave para esta petición o devuelve la respuesta ya guardada.
+     * Si otra instancia la está procesando, espera hasta wait-timeout-ms.
+     */
+    private Claim claim(String storeKey, String requestHash) {
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+        
+        while (true) {
+            Claim claim;
+            try {
+                claim = requiresNew.execute(status -> tryClaim(storeKey, requestHash));
+            } catch (DataIntegrityViolationException e) {
+                claim = null;  // Otra instancia la insertó a la vez
+            }
+            
+            if (claim != null && claim.claimedAt() != null) {
+                return claim;
+            }
+            IdempotencyRecord existing = claim != null ? claim.existing() : null;
+            if (existing != null && existing.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                completed.put(storeKey, existing);
+                return claim;
+            }
+            if (existing != null && !existing.getRequestHash().equals(requestHash)) {
+                throw new IdempotencyConflictException("La " + HEADER + " ya se usó con otra petición");
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IdempotencyConflictException("Hay una petición en curso con la misma " + HEADER);
+            }
+            if (existing != null) {
+                sleep();
+            }
+        }
+    }
+    
+    /**
+     * Un intento de reservar la clave. Devuelve la reserva, el registro de otra
+     * petición, o null si otra instancia cambió el registro entre la lectura y el UPDATE.
+     */
+    private Claim tryClaim(String storeKey, String requestHash) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        IdempotencyRecord existing = repository.findById(storeKey).orElse(null);
+        if (existing == null) {
+            repository.insertInProgress(storeKey, requestHash, now, now.plus(ttl));
+            return new Claim(null, now, false);
+        }
+        
+        boolean expired = existing.getExpiresAt().isBefore(now);
+        boolean abandoned = !expired
+            && existing.getStatus() == IdempotencyRecord.Status.IN_PROGRESS
+            && existing.getCreatedAt().isBefore(now.minus(inProgressTimeout))
+            && existing.getRequestHash().equals(requestHash);
+        if (!expired && !abandoned) {
+            return new Claim(existing, null, false);
+        }
+        
+        // Caducada, o abandonada por una instancia caída: se retoma solo si nadie lo hizo antes
+        int taken = repository.takeOver(storeKey, existing.getCreatedAt(), requestHash,
+            IdempotencyRecord.Status.IN_PROGRESS, now, now.plus(ttl));
+        return taken > 0 ? new Claim(null, now, abandoned) : null;
+    }
+    
+    /**
+     * Guarda la respuesta. Si falla, la clave queda en curso y quien la retome recupera
+     * el resultado con previousResult; esta instancia responde igualmente.
+     */
+    private IdempotencyRecord complete(String storeKey, Claim claim, String requestHash, Object response) {
+        String body = toJson(response);
+        try {
+            Integer updated = requiresNew.execute(status -> repository.complete(storeKey, claim.claimedAt(),
+                IdempotencyRecord.Status.IN_PROGRESS, IdempotencyRecord.Status.COMPLETED, body));
+            if (updated == null || updated == 0) {
+                log.warn("Idempotency key {} was taken over before its response could be stored", storeKey);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not store response for idempotency key {}: {}", storeKey, e.getMessage());
+        }
+        IdempotencyRecord record = new IdempotencyRecord(storeKey, requestHash,
+            IdempotencyRecord.Status.COMPLETED, body, claim.claimedAt(), claim.claimedAt().plus(ttl));
+        completed.put(storeKey, record);
+        return record;
+    }
+    
+    private void release(String storeKey, Claim claim) {
+        try {
+            requiresNew.executeWithoutResult(status ->
+                repository.release(storeKey, claim.claimedAt(), IdempotencyRecord.Status.IN_PROGRESS));
+        } catch (RuntimeException e) {
+            log.warn("Could not release idempotency key {}: {}", storeKey, e.getMessage());
+        }
+    }
+    
+    private <T> Result<T> replay(IdempotencyRecord record, String requestHash, Class<T> responseType) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyConflictException("La " + HEADER + " ya se usó con otra petición");
+        }
+        replayCounter.increment();
+        try {
+            return new Result<>(objectMapper.readValue(record.getResponseBody(), responseType), true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Respuesta guardada ilegible para " + record.getIdempotencyKey(), e);
+        }
+    }
+    
+    private IdempotencyRecord await(CompletableFuture<IdempotencyRecord> running) {
+        try {
+            return running.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("Hay una petición en curso con la misma " + HEADER);
+        } catch (ExecutionException e) {
+            // La primera petición falló: los duplicados reciben el mismo error
+            throw e.getCause() instanceof RuntimeException runtime
+                ? runtime
+                : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Espera de la Idempotency-Key interrumpida");
+        }
+    }
+    
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(toJson(request).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar a JSON", e);
+        }
+    }
+    
+    private void sleep() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Espera de la Idempotency-Key interrumpida");
+        }
+    }
+    
+    /**
+     * Reserva de una clave: existing si la tiene otra petición; si es nuestra, claimedAt
+     * (el createdAt escrito) y abandoned si se retomó de una instancia caída
+     */
+    private record Claim(IdempotencyRecord existing, LocalDateTime claimedAt, boolean abandoned) {
+    }
+    
+    /**
+     * Respuesta de la operación y si proviene de una ejecución anterior
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Result<T> {
+        private T body;
+        private boolean replayed;
+    }
+}
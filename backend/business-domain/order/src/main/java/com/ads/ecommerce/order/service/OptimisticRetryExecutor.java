@@ -0,0 +1,63 @@
+package com.ads.ecommerce.order.service;
+
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ejecuta escrituras sobre SaleOrder en una transacción propia y las reintenta
+ * cuando otra transacción modificó la misma fila (conflicto de @Version).
+ */
+@Slf4j
+@Component
+public class OptimisticRetryExecutor {
+    
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final Counter conflicts;
+    private final Counter retries;
+    
+    public OptimisticRetryExecutor(PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${order.optimistic-lock.max-attempts:3}") int maxAttempts) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.conflicts = Counter.builder("order.optimistic_lock.conflicts")
+            .description("Conflictos de versión detectados al escribir órdenes")
+            .register(meterRegistry);
+        this.retries = Counter.builder("order.optimistic_lock.retries")
+            .description("Reintentos tras un conflicto de versión")
+            .register(meterRegistry);
+    }
+    
+    public <T> T execute(Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (ObjectOptimisticLockingFailureException e) {
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    log.warn("Version conflict not resolved after {} attempts: {}", attempt, e.getMessage());
+                    throw e;
+                }
+                retries.increment();
+                log.debug("Version conflict on attempt {}, retrying: {}", attempt, e.getMessage());
+            }
+        }
+    }
+    
+    public void run(Runnable action) {
+        execute(() -> {
+            action.run();
+            return null;
+        });
+    }
+}
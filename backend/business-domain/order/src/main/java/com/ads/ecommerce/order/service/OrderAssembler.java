@@ -0,0 +1,56 @@
+package com.ads.ecommerce.order.service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.ads.ecommerce.order.dto.CustomerDTO;
+import com.ads.ecommerce.order.dto.OrderLineRequest;
+import com.ads.ecommerce.order.dto.OrderRequest;
+import com.ads.ecommerce.order.dto.ProductDTO;
+import com.ads.ecommerce.order.model.OrderLine;
+import com.ads.ecommerce.order.model.OrderStatus;
+import com.ads.ecommerce.order.model.SaleOrder;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Construye una SaleOrder a partir de la petición y de cliente y productos ya validados
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderAssembler {
+    
+    private final OrderNumberGenerator orderNumberGenerator;
+    
+    public SaleOrder assemble(OrderRequest request, CustomerDTO customer, Map<Long, ProductDTO> products) {
+        SaleOrder order = new SaleOrder();
+        order.setOrderNumber(orderNumberGenerator.next());
+        order.setCustomerId(request.getCustomerId());
+        order.setNotes(request.getNotes());
+        order.setStatus(OrderStatus.PENDING);
+        
+        for (OrderLineRequest itemRequest : request.getItems()) {
+            ProductDTO product = products.get(itemRequest.getProductId());
+            
+            OrderLine orderLine = new OrderLine();
+            orderLine.setProductId(product.getId());
+            orderLine.setProductName(product.getName());
+            orderLine.setUnitPrice(product.getPrice());
+            orderLine.setQuantity(itemRequest.getQuantity());
+            orderLine.calculateLineTotal();
+            
+            order.addOrderLine(orderLine);
+        }
+        
+        // Calcular totales y aplicar descuento del cliente
+        order.recalculateTotal();
+        if (customer.getDiscount() != null && customer.getDiscount() > 0) {
+            BigDecimal discountAmount = order.getSubtotal()
+                .multiply(BigDecimal.valueOf(customer.getDiscount()));
+            order.applyDiscount(discountAmount);
+        }
+        return order;
+    }
+}
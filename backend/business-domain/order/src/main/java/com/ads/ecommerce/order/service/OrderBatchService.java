@@ -0,0 +1,288 @@
+package com.ads.ecommerce.order.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ads.ecommerce.order.client.CustomerClient;
+import com.ads.ecommerce.order.client.ProductClient;
+import com.ads.ecommerce.order.dto.CustomerDTO;
+import com.ads.ecommerce.order.dto.OrderBatchRequest;
+import com.ads.ecommerce.order.dto.OrderBatchResponse;
+import com.ads.ecommerce.order.dto.OrderLineRequest;
+import com.ads.ecommerce.order.dto.OrderRequest;
+import com.ads.ecommerce.order.dto.ProductDTO;
+import com.ads.ecommerce.order.exception.DownstreamTimeoutException;
+import com.ads.ecommerce.order.model.SaleOrder;
+import com.ads.ecommerce.order.model.StockOutboxEvent;
+import com.ads.ecommerce.order.repository.SaleOrderRepository;
+import com.ads.ecommerce.order.repository.StockOutboxRepository;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Alta masiva de órdenes (POST /api/v1/orders/batch).
+ * Clientes y productos se consultan una sola vez para todo el lote y en paralelo,
+ * las órdenes se validan en memoria contra el stock restante y las válidas se
+ * persisten por bloques.
+ * Cada orden devuelve su propio resultado: un fallo no invalida las demás.
+ * Como en el alta individual, la reserva de stock de cada orden se guarda en el
+ * outbox en la misma transacción que la orden: StockOutboxRelay la envía
+ * consolidada con las de otras órdenes, y cancela la orden si product-service
+ * la rechaza. Nunca queda stock reservado sin orden ni orden sin reserva.
+ */
+@Slf4j
+@Service
+public class OrderBatchService {
+    
+    /** Máximo de IDs por llamada a /products/batch (van en la query string) */
+    private static final int PRODUCT_LOOKUP_CHUNK = 200;
+    
+    private final CustomerClient customerClient;
+    private final ProductClient productClient;
+    private final OrderAssembler orderAssembler;
+    private final SaleOrderRepository orderRepository;
+    private final StockOutboxRepository stockOutboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+    private final int maxOrders;
+    private final int chunkSize;
+    private final long timeoutMs;
+    
+    public OrderBatchService(CustomerClient customerClient,
+                             ProductClient productClient,
+                             OrderAssembler orderAssembler,
+                             SaleOrderRepository orderRepository,
+                             StockOutboxRepository stockOutboxRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Qualifier("orderValidationExecutor") Executor executor,
+                             @Value("${order.batch.max-orders:5000}") int maxOrders,
+                             @Value("${order.batch.chunk-size:100}") int chunkSize,
+                             @Value("${order.validation.timeout-ms:8000}") long timeoutMs) {
+        this.customerClient = customerClient;
+        this.productClient = productClient;
+        this.orderAssembler = orderAssembler;
+        this.orderRepository = orderRepository;
+        this.stockOutboxRepository = stockOutboxRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = executor;
+        this.maxOrders = maxOrders;
+        this.chunkSize = chunkSize;
+        this.timeoutMs = timeoutMs;
+    }
+    
+    public OrderBatchResponse createOrders(OrderBatchRequest request) {
+        List<OrderRequest> requests = request.getOrders();
+        if (requests.size() > maxOrders) {
+            throw new IllegalArgumentException(
+                "El lote supera el máximo de " + maxOrders + " órdenes: " + requests.size());
+        }
+        long start = System.nanoTime();
+        log.info("Creating batch of {} orders", requests.size());
+        
+        int total = requests.size();
+        String[] errors = new String[total];
+        SaleOrder[] created = new SaleOrder[total];
+        
+        // 1. Consultar clientes y productos distintos de todo el lote, en paralelo
+        Set<Long> customerIds = requests.stream()
+            .map(OrderRequest::getCustomerId)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        Set<Long> productIds = requests.stream()
+            .flatMap(order -> order.getItems().stream())
+            .map(OrderLineRequest::getProductId)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        Lookups lookups = fetchLookups(customerIds, productIds);
+        
+        // 2. Validar cada orden descontando el stock que ya reservan las anteriores del lote
+        Map<Long, Integer> remainingStock = new HashMap<>();
+        lookups.products.forEach((id, product) -> remainingStock.put(id, product.getStock()));
+        Map<Integer, Map<Long, Integer>> quantities = new LinkedHashMap<>();
+        
+        for (int i = 0; i < total; i++) {
+            OrderRequest order = requests.get(i);
+            Map<Long, Integer> requested = order.getItems().stream()
+                .collect(Collectors.groupingBy(OrderLineRequest::getProductId,
+                    Collectors.summingInt(OrderLineRequest::getQuantity)));
+            
+            String error = validate(order, requested, lookups, remainingStock);
+            if (error != null) {
+                errors[i] = error;
+                continue;
+            }
+            requested.forEach((productId, quantity) -> remainingStock.merge(productId, -quantity, Integer::sum));
+            quantities.put(i, requested);
+        }
+        
+        // 3. Construir y persistir por bloques, cada orden con su reserva en el outbox
+        List<Integer> accepted = new ArrayList<>(quantities.keySet());
+        for (int from = 0; from < accepted.size(); from += chunkSize) {
+            List<Integer> chunk = accepted.subList(from, Math.min(from + chunkSize, accepted.size()));
+            persistChunk(chunk, requests, lookups, quantities, created, errors);
+        }
+        
+        // 4. Resultado por orden
+        List<OrderBatchResponse.OrderBatchResult> results = new ArrayList<>(total);
+        int acceptedCount = 0;
+        for (int i = 0; i < total; i++) {
+            SaleOrder order = created[i];
+            if (order != null) {
+                acceptedCount++;
+                results.add(OrderBatchResponse.OrderBatchResult.builder()
+                    .index(i)
+                    .success(true)
+                    .orderId(order.getId())
+                    .orderNumber(order.getOrderNumber())
+                    .total(order.getTotal())
+                    .build());
+            } else {
+                results.add(OrderBatchResponse.OrderBatchResult.builder()
+                    .index(i)
+                    .success(false)
+                    .error(errors[i])
+                    .build());
+            }
+        }
+        
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        log.info("Order batch processed: {} accepted, {} rejected in {} s ({} orders/s)",
+            acceptedCount, total - acceptedCount, String.format("%.2f", seconds),
+            String.format("%.0f", total / Math.max(seconds, 0.001)));
+        
+        return OrderBatchResponse.builder()
+            .accepted(acceptedCount)
+            .rejected(total - acceptedCount)
+            .results(results)
+            .build();
+    }
+    
+    private String validate(OrderRequest order, Map<Long, Integer> requested,
+                            Lookups lookups, Map<Long, Integer> remainingStock) {
+        CustomerDTO customer = lookups.customers.get(order.getCustomerId());
+        if (customer == null) {
+            return "Cliente no encontrado: " + order.getCustomerId();
+        }
+        if (!customer.getActive()) {
+            return "El cliente no está activo";
+        }
+        
+        for (Map.Entry<Long, Integer> entry : requested.entrySet()) {
+            ProductDTO product = lookups.products.get(entry.getKey());
+            if (product == null) {
+                return "Producto no encontrado: " + entry.getKey();
+            }
+            if (!product.getAvailable()) {
+                return "Producto no disponible: " + product.getName();
+            }
+            int available = remainingStock.get(entry.getKey());
+            if (available < entry.getValue()) {
+                return "Stock insuficiente para: " + product.getName() + ". Disponible: " + available;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Guarda un bloque de órdenes en una transacción, junto con sus reservas de stock
+     * en el outbox. Si el bloque falla se reintenta orden a orden, y solo las órdenes
+     * que siguen fallando se marcan como fallidas (sin reserva que deshacer).
+     */
+    private void persistChunk(List<Integer> chunk, List<OrderRequest> requests, Lookups lookups,
+                              Map<Integer, Map<Long, Integer>> quantities,
+                              SaleOrder[] created, String[] errors) {
+        try {
+            List<SaleOrder> saved = transactionTemplate.execute(status -> {
+                List<SaleOrder> orders = new ArrayList<>(chunk.size());
+                for (Integer index : chunk) {
+                    OrderRequest request = requests.get(index);
+                    orders.add(orderAssembler.assemble(
+                        request, lookups.customers.get(request.getCustomerId()), lookups.products));
+                }
+                List<SaleOrder> persisted = orderRepository.saveAll(orders);
+                
+                List<StockOutboxEvent> reservations = new ArrayList<>();
+                for (int i = 0; i < chunk.size(); i++) {
+                    Long orderId = persisted.get(i).getId();
+                    quantities.get(chunk.get(i)).forEach((productId, quantity) ->
+                        reservations.add(new StockOutboxEvent(orderId, productId, -quantity)));
+                }
+                stockOutboxRepository.saveAll(reservations);
+                return persisted;
+            });
+            for (int i = 0; i < chunk.size(); i++) {
+                created[chunk.get(i)] = saved.get(i);
+            }
+        } catch (RuntimeException e) {
+            if (chunk.size() > 1) {
+                log.warn("Failed to persist order chunk of {} orders, retrying order by order: {}",
+                    chunk.size(), e.getMessage());
+                chunk.forEach(index -> persistChunk(List.of(index), requests, lookups, quantities, created, errors));
+                return;
+            }
+            Integer index = chunk.get(0);
+            errors[index] = "Error al guardar la orden";
+            log.error("Failed to persist order {} of the batch", index, e);
+        }
+    }
+    
+    private Lookups fetchLookups(Set<Long> customerIds, Set<Long> productIds) {
+        CompletableFuture<List<CustomerDTO>> customersFuture = CompletableFuture
+            .supplyAsync(() -> customerClient.getCustomers(customerIds), executor);
+        
+        List<Long> ids = new ArrayList<>(productIds);
+        List<CompletableFuture<List<ProductDTO>>> productFutures = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += PRODUCT_LOOKUP_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + PRODUCT_LOOKUP_CHUNK, ids.size()));
+            productFutures.add(CompletableFuture.supplyAsync(() -> productClient.getProducts(chunk), executor));
+        }
+        
+        List<CompletableFuture<?>> all = new ArrayList<>(productFutures);
+        all.add(customersFuture);
+        try {
+            CompletableFuture.allOf(all.toArray(CompletableFuture[]::new)).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            all.forEach(future -> future.cancel(true));
+            throw new DownstreamTimeoutException(
+                "La consulta de clientes y productos del lote superó el plazo de " + timeoutMs + " ms");
+        } catch (ExecutionException | CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime
+                ? runtime
+                : new IllegalStateException("Error consultando clientes y productos del lote", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Consulta del lote interrumpida");
+        }
+        
+        Map<Long, CustomerDTO> customers = customersFuture.join().stream()
+            .collect(Collectors.toMap(CustomerDTO::getId, Function.identity()));
+        Map<Long, ProductDTO> products = productFutures.stream()
+            .flatMap(future -> future.join().stream())
+            .collect(Collectors.toMap(ProductDTO::getId, Function.identity()));
+        return new Lookups(customers, products);
+    }
+    
+    @AllArgsConstructor
+    private static class Lookups {
+        private final Map<Long, CustomerDTO> customers;
+        private final Map<Long, ProductDTO> products;
+    }
+}
@@ -0,0 +1,123 @@
+package com.ads.ecommerce.order.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ads.ecommerce.order.dto.OrderExportRow;
+import com.ads.ecommerce.order.model.SaleOrder;
+import com.ads.ecommerce.order.repository.SaleOrderRepository;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exporta órdenes fila a fila con el resultado de la consulta en streaming.
+ * Cada orden se escribe y se desvincula del contexto de persistencia,
+ * por lo que la memoria no crece con el rango de fechas.
+ */
+@Slf4j
+@Service
+public class OrderExportService {
+    
+    public enum ExportFormat {
+        NDJSON,
+        CSV
+    }
+    
+    private static final String CSV_HEADER =
+        "id,orderNumber,customerId,subtotal,discount,total,totalPaid,status,createdAt,updatedAt";
+    
+    private final SaleOrderRepository orderRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter rowWriter;
+    
+    public OrderExportService(SaleOrderRepository orderRepository,
+                              EntityManager entityManager,
+                              JsonMapper objectMapper) {
+        this.orderRepository = orderRepository;
+        this.entityManager = entityManager;
+        this.rowWriter = objectMapper.writerFor(OrderExportRow.class)
+            .without(SerializationFeature.INDENT_OUTPUT);
+    }
+    
+    @Transactional(readOnly = true)
+    public long export(LocalDateTime startDate, LocalDateTime endDate,
+                       ExportFormat format, OutputStream out) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.newLine();
+        }
+        
+        long count = 0;
+        try (Stream<SaleOrder> orders = orderRepository.streamByDateRange(startDate, endDate)) {
+            for (SaleOrder order : (Iterable<SaleOrder>) orders::iterator) {
+                OrderExportRow row = toRow(order);
+                entityManager.detach(order);
+                
+                if (format == ExportFormat.CSV) {
+                    writer.write(toCsv(row));
+                } else {
+                    writer.write(rowWriter.writeValueAsString(row));
+                }
+                writer.newLine();
+                count++;
+            }
+        }
+        
+        writer.flush();
+        log.info("Exported {} orders between {} and {} as {}", count, startDate, endDate, format);
+        return count;
+    }
+    
+    private OrderExportRow toRow(SaleOrder order) {
+        return OrderExportRow.builder()
+            .id(order.getId())
+            .orderNumber(order.getOrderNumber())
+            .customerId(order.getCustomerId())
+            .subtotal(order.getSubtotal())
+            .discount(order.getDiscount())
+            .total(order.getTotal())
+            .totalPaid(order.getTotalPaid())
+            .status(order.getStatus())
+            .createdAt(order.getCreatedAt())
+            .updatedAt(order.getUpdatedAt())
+            .build();
+    }
+    
+    private String toCsv(OrderExportRow row) {
+        return String.join(",",
+            csv(row.getId()),
+            csv(row.getOrderNumber()),
+            csv(row.getCustomerId()),
+            csv(row.getSubtotal()),
+            csv(row.getDiscount()),
+            csv(row.getTotal()),
+            csv(row.getTotalPaid()),
+            csv(row.getStatus()),
+            csv(row.getCreatedAt()),
+            csv(row.getUpdatedAt()));
+    }
+    
+    private String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
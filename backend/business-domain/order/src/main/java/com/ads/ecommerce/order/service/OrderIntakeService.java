@@ -0,0 +1,222 @@
+package com.ads.ecommerce.order.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.ads.ecommerce.order.dto.OrderIntakeResponse;
+import com.ads.ecommerce.order.dto.OrderIntakeResponse.IntakeStatus;
+import com.ads.ecommerce.order.dto.OrderRequest;
+import com.ads.ecommerce.order.dto.OrderResponse;
+import com.ads.ecommerce.order.exception.DownstreamErrors;
+import com.ads.ecommerce.order.exception.IntakeQueueFullException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Alta asíncrona de órdenes: la petición se encola en una cola acotada y se
+ * responde con un ID de seguimiento; un pool de workers la procesa con
+ * OrderService.createOrder. Con la cola llena se rechaza (503) en lugar de
+ * acumular hilos y conexiones esperando a los servicios externos.
+ */
+@Slf4j
+@Service
+public class OrderIntakeService {
+    
+    private final OrderService orderService;
+    private final ThreadPoolExecutor workers;
+    private final ArrayBlockingQueue<Runnable> queue;
+    private final Cache<String, Ticket> tickets;
+    private final long shutdownTimeoutSeconds;
+    private final Timer waitTimer;
+    private final Timer processingTimer;
+    private final Counter rejectedCounter;
+    
+    public OrderIntakeService(OrderService orderService,
+                              MeterRegistry meterRegistry,
+                              @Value("${order.intake.workers:8}") int workerCount,
+                              @Value("${order.intake.queue-capacity:1000}") int queueCapacity,
+                              @Value("${order.intake.result-ttl-seconds:3600}") long resultTtlSeconds,
+                              @Value("${order.intake.max-tracked-orders:100000}") long maxTrackedOrders,
+                              @Value("${order.intake.shutdown-timeout-seconds:30}") long shutdownTimeoutSeconds) {
+        this.orderService = orderService;
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS, queue,
+            runnable -> new Thread(runnable, "order-intake-" + threadNumber.incrementAndGet()),
+            new ThreadPoolExecutor.AbortPolicy());
+        // Acotado también en tamaño: con mucho tráfico el TTL solo no limita la memoria
+        this.tickets = Caffeine.newBuilder()
+            .maximumSize(maxTrackedOrders)
+            .expireAfterWrite(Duration.ofSeconds(resultTtlSeconds))
+            .build();
+        
+        Gauge.builder("order.intake.queue.depth", queue, ArrayBlockingQueue::size)
+            .description("Órdenes en cola pendientes de procesar")
+            .register(meterRegistry);
+        Gauge.builder("order.intake.queue.remaining", queue, ArrayBlockingQueue::remainingCapacity)
+            .description("Capacidad libre de la cola de alta")
+            .register(meterRegistry);
+        this.waitTimer = Timer.builder("order.intake.wait")
+            .description("Tiempo que una orden pasa en cola hasta que un worker la toma")
+            .register(meterRegistry);
+        this.processingTimer = Timer.builder("order.intake.processing")
+            .description("Tiempo de creación de la orden por el worker")
+            .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("order.intake.rejected")
+            .description("Órdenes rechazadas por cola llena")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Encola la orden y devuelve su estado inicial (QUEUED)
+     */
+    public OrderIntakeResponse submit(OrderRequest request) {
+        Ticket ticket = new Ticket(UUID.randomUUID().toString());
+        tickets.put(ticket.trackingId, ticket);
+        long enqueuedAt = System.nanoTime();
+        
+        try {
+            workers.execute(new IntakeTask(ticket, request, enqueuedAt));
+        } catch (RejectedExecutionException e) {
+            tickets.invalidate(ticket.trackingId);
+            rejectedCounter.increment();
+            log.warn("Order intake queue full ({} queued), rejecting order for customer {}",
+                queue.size(), request.getCustomerId());
+            throw new IntakeQueueFullException("Cola de órdenes llena, reintente más tarde");
+        }
+        
+        log.info("Order queued with tracking id {} for customer {}", ticket.trackingId, request.getCustomerId());
+        return ticket.toResponse();
+    }
+    
+    public Optional<OrderIntakeResponse> getStatus(String trackingId) {
+        return Optional.ofNullable(tickets.getIfPresent(trackingId)).map(Ticket::toResponse);
+    }
+    
+    /**
+     * Se completa cuando la orden termina de procesarse (con éxito o no),
+     * para que el cliente pueda esperar el resultado en lugar de consultar en bucle
+     */
+    public Optional<CompletableFuture<OrderIntakeResponse>> awaitCompletion(String trackingId) {
+        return Optional.ofNullable(tickets.getIfPresent(trackingId))
+            .map(ticket -> ticket.done.thenApply(ignored -> ticket.toResponse()));
+    }
+    
+    private void process(Ticket ticket, OrderRequest request, long enqueuedAt) {
+        waitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+        ticket.status = IntakeStatus.PROCESSING;
+        
+        try {
+            OrderResponse order = processingTimer.record(() -> orderService.createOrder(request));
+            log.info("Queued order {} created: {}", ticket.trackingId, order.getOrderNumber());
+            ticket.complete(order);
+        } catch (RuntimeException e) {
+            String error = DownstreamErrors.message(e);
+            log.warn("Queued order {} failed: {}", ticket.trackingId, error);
+            ticket.fail(error);
+        }
+    }
+    
+    /**
+     * Deja de aceptar órdenes y espera a que se procesen las que ya están en cola.
+     * Si no terminan en el plazo, las que siguen en cola se retiran y su ticket pasa
+     * a FAILED (quien espera el resultado recibe el error); las que ya están en
+     * proceso no se interrumpen, para no dejar una orden a medio crear.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        if (workers.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+            return;
+        }
+        
+        List<Runnable> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        for (Runnable runnable : pending) {
+            IntakeTask task = (IntakeTask) runnable;
+            task.ticket.fail("Servicio detenido antes de procesar la orden, reenvíela");
+            log.warn("Order intake shutting down, queued order {} for customer {} not processed",
+                task.ticket.trackingId, task.request.getCustomerId());
+        }
+        if (!workers.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+            log.warn("Order intake shut down with {} orders still processing", workers.getActiveCount());
+        }
+    }
+    
+    private final class IntakeTask implements Runnable {
+        private final Ticket ticket;
+        private final OrderRequest request;
+        private final long enqueuedAt;
+        
+        private IntakeTask(Ticket ticket, OrderRequest request, long enqueuedAt) {
+            this.ticket = ticket;
+            this.request = request;
+            this.enqueuedAt = enqueuedAt;
+        }
+        
+        @Override
+        public void run() {
+            process(ticket, request, enqueuedAt);
+        }
+    }
+    
+    private static class Ticket {
+        private final String trackingId;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private volatile IntakeStatus status = IntakeStatus.QUEUED;
+        private volatile LocalDateTime completedAt;
+        private volatile OrderResponse order;
+        private volatile String error;
+        
+        private Ticket(String trackingId) {
+            this.trackingId = trackingId;
+        }
+        
+        private void complete(OrderResponse order) {
+            this.completedAt = LocalDateTime.now();
+            this.order = order;
+            this.status = IntakeStatus.COMPLETED;
+            done.complete(null);
+        }
+        
+        private void fail(String error) {
+            this.completedAt = LocalDateTime.now();
+            this.error = error;
+            this.status = IntakeStatus.FAILED;
+            done.complete(null);
+        }
+        
+        private OrderIntakeResponse toResponse() {
+            return OrderIntakeResponse.builder()
+                .trackingId(trackingId)
+                .status(status)
+                .submittedAt(submittedAt)
+                .completedAt(completedAt)
+                .order(order)
+                .error(error)
+                .build();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.ads.ecommerce.order.service;
+
+import java.time.Year;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.ads.ecommerce.common.sequence.BlockSequence;
+import com.ads.ecommerce.common.sequence.SequenceBlockAllocator;
+import com.ads.ecommerce.order.repository.SaleOrderRepository;
+
+/**
+ * Genera números de orden ORD-YYYY-NNNNNN únicos entre réplicas.
+ * Cada instancia reserva bloques de la tabla number_sequences y los
+ * reparte desde memoria sin bloqueos; solo al agotar un bloque o al
+ * cambiar de año vuelve a la base de datos.
+ */
+@Component
+public class OrderNumberGenerator {
+    
+    private static final String PREFIX = "ORD";
+    
+    private final BlockSequence sequence;
+    private final SaleOrderRepository orderRepository;
+    
+    private volatile int currentYear;
+    
+    public OrderNumberGenerator(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                SaleOrderRepository orderRepository,
+                                @Value("${order.number.block-size:50}") int blockSize) {
+        this.sequence = new BlockSequence(
+            new SequenceBlockAllocator(jdbcTemplate, transactionManager, "number_sequences"), blockSize);
+        this.orderRepository = orderRepository;
+    }
+    
+    public String next() {
+        int year = Year.now().getValue();
+        if (year != currentYear) {
+            // El bloque del año anterior ya no se usará
+            currentYear = year;
+            sequence.retainOnly(name -> name.endsWith("-" + year));
+        }
+        long value = sequence.next(PREFIX + "-" + year, () -> lastUsedNumber(year));
+        return String.format("%s-%d-%06d", PREFIX, year, value);
+    }
+    
+    /**
+     * Último número ya usado en el año, para continuar la numeración existente
+     * la primera vez que se crea la secuencia
+     */
+    private long lastUsedNumber(int year) {
+        String prefix = PREFIX + "-" + year + "-";
+        return orderRepository.findMaxOrderNumberStartingWith(prefix)
+            .map(number -> Long.parseLong(number.substring(prefix.length())))
+            .orElse(0L);
+    }
+}
@@ -1,20 +1,21 @@
 package com.ads.ecommerce.order.service;
 
 import java.math.BigDecimal;
-import java.time.Year;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import com.ads.ecommerce.order.client.CustomerClient;
-import com.ads.ecommerce.order.client.ProductClient;
+import com.ads.ecommerce.order.cache.CustomerCache;
+import com.ads.ecommerce.order.dto.CursorPage;
 import com.ads.ecommerce.order.dto.CustomerDTO;
-import com.ads.ecommerce.order.dto.OrderLineRequest;
 import com.ads.ecommerce.order.dto.OrderLineResponse;
 import com.ads.ecommerce.order.dto.OrderRequest;
 import com.ads.ecommerce.order.dto.OrderResponse;
@@ -24,10 +25,13 @@ import com.ads.ecommerce.order.dto.ProductDTO;
 import com.ads.ecommerce.order.exception.OrderNotFoundException;
 import com.ads.ecommerce.order.model.OrderLine;
 import com.ads.ecommerce.order.model.OrderStatus;
+import com.ads.ecommerce.order.model.OutboxStatus;
 import com.ads.ecommerce.order.model.Payment;
 import com.ads.ecommerce.order.model.SaleOrder;
+import com.ads.ecommerce.order.model.StockOutboxEvent;
 import com.ads.ecommerce.order.repository.PaymentRepository;
 import com.ads.ecommerce.order.repository.SaleOrderRepository;
+import com.ads.ecommerce.order.repository.StockOutboxRepository;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -39,71 +43,45 @@ public class OrderService {
     
     private final SaleOrderRepository orderRepository;
     private final PaymentRepository paymentRepository;
-    private final CustomerClient customerClient;
-    private final ProductClient productClient;
+    private final CustomerCache customerCache;
+    private final StockOutboxRepository stockOutboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderValidationService orderValidationService;
+    private final OrderAssembler orderAssembler;
+    private final OptimisticRetryExecutor retryExecutor;
     
-    private final AtomicInteger orderCounter = new AtomicInteger(1);
-    
-    @Transactional
     public OrderResponse createOrder(OrderRequest request) {
+        return createOrder(request, null);
+    }
+    
+    /**
+     * Valida fuera de la transacción; la orden y sus movimientos de stock (outbox)
+     * se guardan juntos en una transacción corta, sin llamadas remotas dentro
+     *
+     * @param idempotencyKey clave almacenada de la Idempotency-Key; se guarda con la orden
+     */
+    public OrderResponse createOrder(OrderRequest request, String idempotencyKey) {
         log.info("Creating order for customer: {}", request.getCustomerId());
         
-        // 1. Validar que el cliente existe y está activo
-        CustomerDTO customer = customerClient.getCustomer(request.getCustomerId());
-        if (!customer.getActive()) {
-            throw new IllegalArgumentException("El cliente no está activo");
-        }
-        
-        // 2. Crear la orden
-        SaleOrder order = new SaleOrder();
-        order.setOrderNumber(generateOrderNumber());
-        order.setCustomerId(request.getCustomerId());
-        order.setNotes(request.getNotes());
-        order.setStatus(OrderStatus.PENDING);
-        
-        // 3. Procesar cada ítem
-        for (OrderLineRequest itemRequest : request.getItems()) {
-            // Validar producto
-            ProductDTO product = productClient.getProduct(itemRequest.getProductId());
-            
-            if (!product.getAvailable()) {
-                throw new IllegalArgumentException("Producto no disponible: " + product.getName());
-            }
-            
-            if (product.getStock() < itemRequest.getQuantity()) {
-                throw new IllegalArgumentException(
-                    "Stock insuficiente para: " + product.getName() + 
-                    ". Disponible: " + product.getStock()
-                );
-            }
-            
-            // Crear línea de orden
-            OrderLine orderLine = new OrderLine();
-            orderLine.setProductId(product.getId());
-            orderLine.setProductName(product.getName());
-            orderLine.setUnitPrice(product.getPrice());
-            orderLine.setQuantity(itemRequest.getQuantity());
-            orderLine.calculateLineTotal();
-            
-            order.addOrderLine(orderLine);
-            
-            // Disminuir stock del producto
-            Map<String, Object> stockUpdate = new HashMap<>();
-            stockUpdate.put("quantity", itemRequest.getQuantity());
-            stockUpdate.put("operation", "SUBTRACT");
-            productClient.updateStock(product.getId(), stockUpdate);
-        }
+        // 1. Validar cliente y productos (en paralelo si está habilitado)
+        OrderValidationService.ValidatedOrder validated = orderValidationService.validate(request);
+        CustomerDTO customer = validated.getCustomer();
+        Map<Long, ProductDTO> products = validated.getProducts();
+        Map<Long, Integer> requestedQuantities = validated.getRequestedQuantities();
         
-        // 4. Calcular totales y aplicar descuento del cliente
-        order.recalculateTotal();
-        if (customer.getDiscount() != null && customer.getDiscount() > 0) {
-            BigDecimal discountAmount = order.getSubtotal()
-                .multiply(BigDecimal.valueOf(customer.getDiscount()));
-            order.applyDiscount(discountAmount);
-        }
+        // 2. Crear la orden con sus líneas, totales y descuento
+        SaleOrder order = orderAssembler.assemble(request, customer, products);
+        order.setIdempotencyKey(idempotencyKey);
         
-        // 5. Guardar
-        SaleOrder saved = orderRepository.save(order);
+        // 3. Guardar la orden y la reserva de stock en la misma transacción
+        SaleOrder saved = transactionTemplate.execute(status -> {
+            SaleOrder persisted = orderRepository.save(order);
+            List<StockOutboxEvent> reservations = new ArrayList<>();
+            requestedQuantities.forEach((productId, quantity) ->
+                reservations.add(new StockOutboxEvent(persisted.getId(), productId, -quantity)));
+            stockOutboxRepository.saveAll(reservations);
+            return persisted;
+        });
         log.info("Order created: {} for customer: {}", saved.getOrderNumber(), customer.getName());
         
         return toResponse(saved, customer.getName());
@@ -114,8 +92,7 @@ public class OrderService {
         SaleOrder order = orderRepository.findById(id)
             .orElseThrow(() -> new OrderNotFoundException("Orden no encontrada: " + id));
         
-        CustomerDTO customer = customerClient.getCustomer(order.getCustomerId());
-        return toResponse(order, customer.getName());
+        return toResponse(order, customerCache.getCustomerName(order.getCustomerId()));
     }
     
     @Transactional(readOnly = true)
@@ -123,65 +100,124 @@ public class OrderService {
         SaleOrder order = orderRepository.findByOrderNumber(orderNumber)
             .orElseThrow(() -> new OrderNotFoundException("Orden no encontrada: " + orderNumber));
         
-        CustomerDTO customer = customerClient.getCustomer(order.getCustomerId());
-        return toResponse(order, customer.getName());
+        return toResponse(order, customerCache.getCustomerName(order.getCustomerId()));
     }
     
     @Transactional(readOnly = true)
-    public List<OrderResponse> getAllOrders() {
-        return orderRepository.findAll().stream()
-            .map(order -> {
-                CustomerDTO customer = customerClient.getCustomer(order.getCustomerId());
-                return toResponse(order, customer.getName());
-            })
-            .collect(Collectors.toList());
+    public CursorPage<OrderResponse> getAllOrders(String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        return toPage(orderRepository.findPage(CursorPage.decode(cursor), Limit.of(pageSize + 1)), pageSize);
     }
     
     @Transactional(readOnly = true)
-    public List<OrderResponse> getOrdersByCustomer(Long customerId) {
-        return orderRepository.findByCustomerId(customerId).stream()
-            .map(order -> {
-                CustomerDTO customer = customerClient.getCustomer(order.getCustomerId());
-                return toResponse(order, customer.getName());
-            })
-            .collect(Collectors.toList());
+    public CursorPage<OrderResponse> getOrdersByCustomer(Long customerId, String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        return toPage(orderRepository.findPageByCustomerId(
+            customerId, CursorPage.decode(cursor), Limit.of(pageSize + 1)), pageSize);
     }
     
     @Transactional(readOnly = true)
-    public List<OrderResponse> getOrdersByStatus(OrderStatus status) {
-        return orderRepository.findByStatus(status).stream()
-            .map(order -> {
-                CustomerDTO customer = customerClient.getCustomer(order.getCustomerId());
-                return toResponse(order, customer.getName());
-            })
-            .collect(Collectors.toList());
+    public CursorPage<OrderResponse> getOrdersByStatus(OrderStatus status, String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        return toPage(orderRepository.findPageByStatus(
+            status, CursorPage.decode(cursor), Limit.of(pageSize + 1)), pageSize);
     }
     
-    @Transactional
-    public OrderResponse addPayment(Long orderId, PaymentRequest request) {
+    /**
+     * Orden creada con una Idempotency-Key, para responder igual que la primera vez
+     */
+    @Transactional(readOnly = true)
+    public Optional<OrderResponse> findOrderCreatedWith(String idempotencyKey) {
+        return orderRepository.findFirstByIdempotencyKeyOrderByIdDesc(idempotencyKey)
+            .map(order -> toResponse(order, customerCache.getCustomerName(order.getCustomerId())));
+    }
+    
+    /**
+     * totalPaid se actualiza leyendo y escribiendo la orden: dos pagos simultáneos
+     * chocan en la versión y el perdedor se repite en una transacción nueva, con el
+     * total ya actualizado, en vez de pisar el importe del otro
+     *
+     * @param idempotencyKey clave almacenada de la Idempotency-Key; se guarda con el pago
+     */
+    public OrderResponse addPayment(Long orderId, PaymentRequest request, String idempotencyKey) {
         log.info("Adding payment to order: {}", orderId);
         
-        SaleOrder order = orderRepository.findById(orderId)
-            .orElseThrow(() -> new OrderNotFoundException("Orden no encontrada: " + orderId));
-        
-        if (order.getStatus() == OrderStatus.CANCELLED) {
-            throw new IllegalStateException("No se puede pagar una orden cancelada");
+        return retryExecutor.execute(() -> {
+            SaleOrder order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new OrderNotFoundException("Orden no encontrada: " + orderId));
+            
+            if (order.getStatus() == OrderStatus.CANCELLED) {
+                throw new IllegalStateException("No se puede pagar una orden cancelada");
+            }
+            
+            // Crear pago
+            Payment payment = new Payment();
+            payment.setAmount(request.getAmount());
+            payment.setPaymentMethod(request.getPaymentMethod());
+            payment.setTransactionId(request.getTransactionId());
+            payment.setNotes(request.getNotes());
+            payment.setIdempotencyKey(idempotencyKey);
+            
+            order.addPayment(payment);
+            
+            // flush dentro de la transacción: el conflicto de versión salta aquí y se reintenta
+            SaleOrder updated = orderRepository.saveAndFlush(order);
+            log.info("Payment added. Total paid: {}/{}", order.getTotalPaid(), order.getTotal());
+            
+            return toResponse(updated, customerCache.getCustomerName(order.getCustomerId()));
+        });
+    }
+    
+    /**
+     * Orden tras el pago registrado con una Idempotency-Key
+     */
+    @Transactional(readOnly = true)
+    public Optional<OrderResponse> findOrderPaidWith(String idempotencyKey) {
+        return paymentRepository.findFirstByIdempotencyKeyOrderByIdDesc(idempotencyKey)
+            .map(Payment::getSaleOrder)
+            .map(order -> toResponse(order, customerCache.getCustomerName(order.getCustomerId())));
+    }
+    
+    /**
+     * Corrige el total pagado de las órdenes que no coinciden con la suma de sus pagos
+     */
+    @Transactional
+    public int reconcilePaymentTotals() {
+        List<SaleOrder> inconsistent = orderRepository.findWithInconsistentTotalPaid();
+        for (SaleOrder order : inconsistent) {
+            BigDecimal stored = order.getTotalPaid();
+            order.reconcileTotalPaid();
+            log.warn("Order {} totalPaid reconciled: {} -> {}", order.getOrderNumber(), stored, order.getTotalPaid());
         }
+        orderRepository.saveAll(inconsistent);
+        return inconsistent.size();
+    }
+    
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getOrdersPendingPayment(String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        return toPage(orderRepository.findPendingPaymentPage(
+            CursorPage.decode(cursor), Limit.of(pageSize + 1)), pageSize);
+    }
+    
+    /**
+     * Órdenes marcadas por StockOutboxRelay para revisión manual (stock sin reservar o sin devolver)
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getOrdersRequiringAttention(String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        return toPage(orderRepository.findRequiringAttentionPage(
+            CursorPage.decode(cursor), Limit.of(pageSize + 1)), pageSize);
+    }
+    
+    @Transactional
+    public void resolveAttention(Long id) {
+        SaleOrder order = orderRepository.findById(id)
+            .orElseThrow(() -> new OrderNotFoundException("Orden no encontrada: " + id));
         
-        // Crear pago
-        Payment payment = new Payment();
-        payment.setAmount(request.getAmount());
-        payment.setPaymentMethod(request.getPaymentMethod());
-        payment.setTransactionId(request.getTransactionId());
-        payment.setNotes(request.getNotes());
-        
-        order.addPayment(payment);
-        
-        SaleOrder updated = orderRepository.save(order);
-        log.info("Payment added. Total paid: {}/{}", order.getTotalPaid(), order.getTotal());
-        
-        CustomerDTO customer = customerClient.getCustomer(order.getCustomerId());
-        return toResponse(updated, customer.getName());
+        log.info("Order {} attention resolved: {}", order.getOrderNumber(), order.getAttentionReason());
+        order.setAttentionReason(null);
+        orderRepository.save(order);
     }
     
     @Transactional
@@ -194,22 +230,41 @@ public class OrderService {
         log.info("Order confirmed: {}", order.getOrderNumber());
     }
     
+    /**
+     * Devuelve vía outbox, en la misma transacción, solo el stock que se llegó a descontar.
+     * La orden se bloquea como hace StockOutboxRelay al resolver sus reservas: las aún
+     * sin reclamar se descartan, las que están en un lote las devuelve el relay si se
+     * aplican y las rechazadas no se devuelven
+     */
     @Transactional
     public void cancelOrder(Long id) {
-        SaleOrder order = orderRepository.findById(id)
+        SaleOrder order = orderRepository.findByIdForUpdate(id)
             .orElseThrow(() -> new OrderNotFoundException("Orden no encontrada: " + id));
         
-        // Devolver stock
-        for (OrderLine line : order.getOrderLines()) {
-            Map<String, Object> stockUpdate = new HashMap<>();
-            stockUpdate.put("quantity", line.getQuantity());
-            stockUpdate.put("operation", "ADD");
-            productClient.updateStock(line.getProductId(), stockUpdate);
+        if (order.getStatus() == OrderStatus.CANCELLED) {
+            log.info("Order already cancelled: {}", order.getOrderNumber());
+            return;
         }
-        
         order.cancel();
+        
+        stockOutboxRepository.discardPendingReservations(order.getId(), "Orden cancelada antes de enviar la reserva");
+        
+        // Productos sin reserva aplicada; los que no tienen reserva en el outbox (ya purgada,
+        // o reservada directamente por el alta masiva) se devuelven según sus líneas
+        Set<Long> notReserved = stockOutboxRepository.findByOrderIdAndDeltaLessThan(order.getId(), 0).stream()
+            .filter(reservation -> reservation.getStatus() != OutboxStatus.SENT)
+            .map(StockOutboxEvent::getProductId)
+            .collect(Collectors.toSet());
+        
+        List<StockOutboxEvent> returns = new ArrayList<>();
+        order.getOrderLines().stream()
+            .filter(line -> !notReserved.contains(line.getProductId()))
+            .collect(Collectors.groupingBy(OrderLine::getProductId, Collectors.summingInt(OrderLine::getQuantity)))
+            .forEach((productId, quantity) -> returns.add(new StockOutboxEvent(order.getId(), productId, quantity)));
+        
         orderRepository.save(order);
-        log.info("Order cancelled: {}", order.getOrderNumber());
+        stockOutboxRepository.saveAll(returns);
+        log.info("Order cancelled: {} ({} stock returns)", order.getOrderNumber(), returns.size());
     }
     
     @Transactional
@@ -233,12 +288,22 @@ public class OrderService {
     }
     
     // Métodos auxiliares
-    private String generateOrderNumber() {
-        String year = String.valueOf(Year.now().getValue());
-        String sequence = String.format("%06d", orderCounter.getAndIncrement());
-        return "ORD-" + year + "-" + sequence;
-    }
     
+    /**
+     * Convierte una página de órdenes resolviendo los nombres de todos sus clientes en una sola llamada
+     */
+    private CursorPage<OrderResponse> toPage(List<SaleOrder> rows, int pageSize) {
+        List<SaleOrder> orders = rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+        orderRepository.fetchCollections(orders);
+        Set<Long> customerIds = orders.stream()
+            .map(SaleOrder::getCustomerId)
+            .collect(Collectors.toSet());
+        Map<Long, String> customerNames = customerCache.getCustomerNames(customerIds);
+        
+        return CursorPage.of(rows, pageSize, SaleOrder::getId,
+            order -> toResponse(order, customerNames.get(order.getCustomerId())));
+    }
+
 private OrderResponse toResponse(SaleOrder order, String customerName) {
     List<OrderLineResponse> items = order.getOrderLines().stream()
         .map(line -> OrderLineResponse.builder()
@@ -262,8 +327,6 @@ private OrderResponse toResponse(SaleOrder order, String customerName) {
             .build())
         .collect(Collectors.toList());
     
-    BigDecimal pendingAmount = order.getTotal().subtract(order.getTotalPaid());
-    
     return OrderResponse.builder()
         .id(order.getId())
         .orderNumber(order.getOrderNumber())
@@ -273,14 +336,15 @@ private OrderResponse toResponse(SaleOrder order, String customerName) {
         .discount(order.getDiscount())
         .total(order.getTotal())
         .totalPaid(order.getTotalPaid())
-        .pendingAmount(pendingAmount)
+        .pendingAmount(order.getPendingAmount())
         .status(order.getStatus())
         .items(items)
         .payments(payments)
         .notes(order.getNotes())
+        .attentionReason(order.getAttentionReason())
         .createdAt(order.getCreatedAt())
         .updatedAt(order.getUpdatedAt())
         .build();
-
+    
     }
 }
@@ -0,0 +1,164 @@
+package com.ads.ecommerce.order.service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.ads.ecommerce.order.client.CustomerClient;
+import com.ads.ecommerce.order.client.ProductClient;
+import com.ads.ecommerce.order.dto.CustomerDTO;
+import com.ads.ecommerce.order.dto.OrderLineRequest;
+import com.ads.ecommerce.order.dto.OrderRequest;
+import com.ads.ecommerce.order.dto.ProductDTO;
+import com.ads.ecommerce.order.exception.DownstreamTimeoutException;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Valida cliente y productos de una orden contra los servicios externos.
+ * Con order.validation.parallel.enabled=true ambas consultas se lanzan a la vez,
+ * con un plazo global y fallando en cuanto una de ellas falla.
+ */
+@Slf4j
+@Service
+public class OrderValidationService {
+    
+    private final CustomerClient customerClient;
+    private final ProductClient productClient;
+    private final Executor executor;
+    private final boolean parallel;
+    private final long timeoutMs;
+    
+    public OrderValidationService(CustomerClient customerClient,
+                                  ProductClient productClient,
+                                  @Qualifier("orderValidationExecutor") Executor executor,
+                                  @Value("${order.validation.parallel.enabled:false}") boolean parallel,
+                                  @Value("${order.validation.timeout-ms:8000}") long timeoutMs) {
+        this.customerClient = customerClient;
+        this.productClient = productClient;
+        this.executor = executor;
+        this.parallel = parallel;
+        this.timeoutMs = timeoutMs;
+    }
+    
+    public ValidatedOrder validate(OrderRequest request) {
+        Map<Long, Integer> requestedQuantities = request.getItems().stream()
+            .collect(Collectors.groupingBy(OrderLineRequest::getProductId,
+                Collectors.summingInt(OrderLineRequest::getQuantity)));
+        
+        if (!parallel) {
+            CustomerDTO customer = validateCustomer(customerClient.getCustomer(request.getCustomerId()));
+            Map<Long, ProductDTO> products = validateProducts(
+                fetchProducts(requestedQuantities.keySet()), requestedQuantities);
+            return new ValidatedOrder(customer, products, requestedQuantities);
+        }
+        
+        CompletableFuture<CustomerDTO> customerFuture = CompletableFuture
+            .supplyAsync(() -> customerClient.getCustomer(request.getCustomerId()), executor)
+            .thenApply(this::validateCustomer);
+        CompletableFuture<Map<Long, ProductDTO>> productsFuture = CompletableFuture
+            .supplyAsync(() -> fetchProducts(requestedQuantities.keySet()), executor)
+            .thenApply(products -> validateProducts(products, requestedQuantities));
+        
+        // Completa en cuanto ambas terminan o en cuanto la primera falla
+        CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+        customerFuture.exceptionally(ex -> { firstFailure.completeExceptionally(ex); return null; });
+        productsFuture.exceptionally(ex -> { firstFailure.completeExceptionally(ex); return null; });
+        
+        try {
+            CompletableFuture.anyOf(CompletableFuture.allOf(customerFuture, productsFuture), firstFailure)
+                .get(timeoutMs, TimeUnit.MILLISECONDS);
+            return new ValidatedOrder(customerFuture.join(), productsFuture.join(), requestedQuantities);
+            
+        } catch (TimeoutException e) {
+            throw new DownstreamTimeoutException(
+                "La validación de la orden superó el plazo de " + timeoutMs + " ms");
+        } catch (ExecutionException | CompletionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Validación de la orden interrumpida");
+        } finally {
+            customerFuture.cancel(true);
+            productsFuture.cancel(true);
+        }
+    }
+    
+    private CustomerDTO validateCustomer(CustomerDTO customer) {
+        if (!customer.getActive()) {
+            throw new IllegalArgumentException("El cliente no está activo");
+        }
+        return customer;
+    }
+    
+    /**
+     * Obtiene los productos distintos de las líneas en una sola llamada a product-service
+     */
+    private Map<Long, ProductDTO> fetchProducts(Set<Long> productIds) {
+        List<ProductDTO> found = productClient.getProducts(new LinkedHashSet<>(productIds));
+        Map<Long, ProductDTO> products = found.stream()
+            .collect(Collectors.toMap(ProductDTO::getId, Function.identity()));
+        
+        for (Long productId : productIds) {
+            if (!products.containsKey(productId)) {
+                throw new IllegalArgumentException("Producto no encontrado: " + productId);
+            }
+        }
+        return products;
+    }
+    
+    private Map<Long, ProductDTO> validateProducts(Map<Long, ProductDTO> products,
+                                                   Map<Long, Integer> requestedQuantities) {
+        requestedQuantities.forEach((productId, quantity) -> {
+            ProductDTO product = products.get(productId);
+            
+            if (!product.getAvailable()) {
+                throw new IllegalArgumentException("Producto no disponible: " + product.getName());
+            }
+            
+            if (product.getStock() < quantity) {
+                throw new IllegalArgumentException(
+                    "Stock insuficiente para: " + product.getName() + 
+                    ". Disponible: " + product.getStock()
+                );
+            }
+        });
+        return products;
+    }
+    
+    private RuntimeException unwrap(Throwable cause) {
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        return new IllegalStateException("Error validando la orden", cause);
+    }
+    
+    /**
+     * Resultado de la validación: cliente, productos por ID y cantidad total pedida por producto
+     */
+    @Data
+    @AllArgsConstructor
+    public static class ValidatedOrder {
+        private CustomerDTO customer;
+        private Map<Long, ProductDTO> products;
+        private Map<Long, Integer> requestedQuantities;
+    }
+}
@@ -0,0 +1,366 @@
+package com.ads.ecommerce.order.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ads.ecommerce.order.client.ProductClient;
+import com.ads.ecommerce.order.dto.StockBatchRequest;
+import com.ads.ecommerce.order.exception.DownstreamErrors;
+import com.ads.ecommerce.order.model.OrderStatus;
+import com.ads.ecommerce.order.model.OutboxStatus;
+import com.ads.ecommerce.order.model.SaleOrder;
+import com.ads.ecommerce.order.model.StockOutboxEvent;
+import com.ads.ecommerce.order.repository.SaleOrderRepository;
+import com.ads.ecommerce.order.repository.StockOutboxRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Entrega a product-service los movimientos de stock del outbox.
+ * Reclama lotes de eventos pendientes, consolida los deltas por producto y los
+ * envía en una sola llamada con el batchId como requestId, de modo que un
+ * reintento del mismo lote no se aplica dos veces.
+ * Un lote reclamado pertenece a esta instancia durante un lease; otra instancia
+ * solo lo retoma si el lease caduca (la que lo tenía se cayó a mitad de envío).
+ * Fallos transitorios: el lote se reintenta con backoff exponencial; las llamadas
+ * que el circuit breaker o el bulkhead no dejan salir no cuentan como intento.
+ * Rechazos (stock insuficiente, producto inexistente): un lote con varias órdenes
+ * se divide por orden. La orden cuya reserva es rechazada se cancela si sigue
+ * pendiente y sin pagos; si no, o si el lote agota los reintentos, la orden queda
+ * marcada para revisión manual (GET /api/v1/orders/requires-attention).
+ * Las devoluciones de stock solo se escriben para reservas ya aplicadas: si la orden
+ * se cancela con una reserva en vuelo, la devolución la escribe el relay al confirmarla.
+ * Para eso las transacciones que resuelven reservas bloquean antes sus órdenes, igual
+ * que OrderService.cancelOrder.
+ */
+@Slf4j
+@Component
+public class StockOutboxRelay {
+    
+    private final StockOutboxRepository outboxRepository;
+    private final SaleOrderRepository orderRepository;
+    private final ProductClient productClient;
+    private final TransactionTemplate transactionTemplate;
+    private final String owner = UUID.randomUUID().toString();
+    private final int batchSize;
+    private final int maxAttempts;
+    private final int retentionDays;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final Counter deliveredCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final Counter flaggedCounter;
+    
+    public StockOutboxRelay(StockOutboxRepository outboxRepository,
+                            SaleOrderRepository orderRepository,
+                            ProductClient productClient,
+                            TransactionTemplate transactionTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${order.outbox.batch-size:200}") int batchSize,
+                            @Value("${order.outbox.max-attempts:20}") int maxAttempts,
+                            @Value("${order.outbox.retention-days:7}") int retentionDays,
+                            @Value("${order.outbox.retry-initial-backoff-ms:1000}") long initialBackoffMs,
+                            @Value("${order.outbox.retry-max-backoff-ms:600000}") long maxBackoffMs,
+                            @Value("${order.outbox.lease-ms:60000}") long leaseMs) {
+        this.outboxRepository = outboxRepository;
+        this.orderRepository = orderRepository;
+        this.productClient = productClient;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retentionDays = retentionDays;
+        this.initialBackoff = Duration.ofMillis(initialBackoffMs);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMs);
+        this.lease = Duration.ofMillis(leaseMs);
+        
+        Gauge.builder("order.outbox.pending", outboxRepository, repo -> repo.countByStatus(OutboxStatus.PENDING))
+            .description("Movimientos de stock pendientes de enviar")
+            .register(meterRegistry);
+        this.deliveredCounter = Counter.builder("order.outbox.delivered")
+            .description("Movimientos de stock aplicados en product-service")
+            .register(meterRegistry);
+        this.retriedCounter = Counter.builder("order.outbox.retries")
+            .description("Envíos de lotes fallidos por error transitorio")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("order.outbox.failed")
+            .description("Movimientos de stock rechazados o sin más reintentos")
+            .register(meterRegistry);
+        this.flaggedCounter = Counter.builder("order.outbox.orders.flagged")
+            .description("Órdenes marcadas para revisión manual por un movimiento de stock fallido")
+            .register(meterRegistry);
+    }
+    
+    @Scheduled(fixedDelayString = "${order.outbox.relay-interval-ms:1000}",
+               initialDelayString = "${order.outbox.relay-initial-delay-ms:10000}")
+    public void relay() {
+        // 1. Lotes a reintentar (backoff cumplido) o abandonados por otra instancia (lease caducado)
+        LocalDateTime now = LocalDateTime.now();
+        for (String batchId : outboxRepository.findRedeliverableBatchIds(now, now.minus(lease), Limit.of(batchSize))) {
+            if (takeOver(batchId) && !deliver(batchId)) {
+                return;
+            }
+        }
+        
+        // 2. Nuevos lotes mientras queden pendientes y product-service responda
+        String batchId;
+        while ((batchId = claim()) != null) {
+            if (!deliver(batchId)) {
+                return;
+            }
+        }
+    }
+    
+    @Scheduled(cron = "${order.outbox.purge-cron:0 0 3 * * *}")
+    public void purgeSent() {
+        Integer deleted = transactionTemplate.execute(status -> outboxRepository.deleteSentBefore(
+            OutboxStatus.SENT, LocalDateTime.now().minusDays(retentionDays)));
+        log.info("Purged {} delivered stock outbox events", deleted);
+    }
+    
+    /**
+     * Asigna un batchId a los siguientes eventos pendientes y los toma con un lease.
+     * Devuelve null si no hay ninguno.
+     */
+    private String claim() {
+        return transactionTemplate.execute(status -> {
+            List<StockOutboxEvent> events = outboxRepository.findForClaim(OutboxStatus.PENDING, Limit.of(batchSize));
+            if (events.isEmpty()) {
+                return null;
+            }
+            String batchId = UUID.randomUUID().toString();
+            LocalDateTime now = LocalDateTime.now();
+            events.forEach(event -> {
+                event.setBatchId(batchId);
+                event.setStatus(OutboxStatus.SENDING);
+                event.setClaimedBy(owner);
+                event.setClaimedAt(now);
+            });
+            return batchId;
+        });
+    }
+    
+    private boolean takeOver(String batchId) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer taken = transactionTemplate.execute(status ->
+            outboxRepository.takeOver(batchId, owner, now, now.minus(lease)));
+        return taken != null && taken > 0;
+    }
+    
+    /**
+     * Envía un lote propio. Devuelve false si product-service no está disponible
+     * (error transitorio o llamada no permitida) para dejar de enviar hasta el siguiente ciclo.
+     */
+    private boolean deliver(String batchId) {
+        List<StockOutboxEvent> events = outboxRepository.findByBatchIdAndStatusOrderByIdAsc(batchId, OutboxStatus.SENDING);
+        if (events.isEmpty()) {
+            return true;
+        }
+        
+        Map<Long, Integer> deltas = new TreeMap<>();
+        events.forEach(event -> deltas.merge(event.getProductId(), event.getDelta(), Integer::sum));
+        
+        StockBatchRequest request = new StockBatchRequest();
+        request.setRequestId(batchId);
+        deltas.forEach((productId, delta) -> {
+            if (delta < 0) {
+                request.add(productId, -delta, StockBatchRequest.StockOperation.SUBTRACT);
+            } else if (delta > 0) {
+                request.add(productId, delta, StockBatchRequest.StockOperation.ADD);
+            }
+        });
+        
+        try {
+            if (!request.getItems().isEmpty()) {
+                productClient.updateStockBatch(request);
+            }
+            markSent(batchId, events);
+            deliveredCounter.increment(events.size());
+            log.info("Stock outbox batch {} delivered: {} events, {} products", batchId, events.size(), deltas.size());
+            return true;
+        
+        } catch (RuntimeException e) {
+            if (DownstreamErrors.isRejection(e)) {
+                handleRejected(batchId, events, e);
+                return true;
+            }
+            if (DownstreamErrors.isNotPermitted(e)) {
+                // La llamada no salió: no gasta intento
+                release(batchId, 0, initialBackoff, e);
+                log.info("Stock outbox batch {} not sent, product-service calls not permitted: {}",
+                    batchId, DownstreamErrors.message(e));
+                return false;
+            }
+            retriedCounter.increment();
+            int attempts = events.get(0).getAttempts() + 1;
+            if (attempts >= maxAttempts) {
+                handleExhausted(batchId, events, attempts, e);
+            } else {
+                Duration backoff = backoff(attempts);
+                release(batchId, 1, backoff, e);
+                log.warn("Stock outbox batch {} failed (attempt {}), retrying in {} s: {}",
+                    batchId, attempts, backoff.toSeconds(), DownstreamErrors.message(e));
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * Marca el lote como aplicado y devuelve las reservas de las órdenes que se
+     * cancelaron mientras se enviaban (cancelOrder no las devolvió: seguían en vuelo)
+     */
+    private void markSent(String batchId, List<StockOutboxEvent> events) {
+        List<StockOutboxEvent> reservations = events.stream().filter(event -> event.getDelta() < 0).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> cancelled = lockOrders(reservations).stream()
+                .filter(order -> order.getStatus() == OrderStatus.CANCELLED)
+                .map(SaleOrder::getId)
+                .toList();
+            if (outboxRepository.markSent(batchId, LocalDateTime.now()) == 0 || cancelled.isEmpty()) {
+                return;  // Sin nada que devolver, o ya lo marcó la instancia que retomó el lote
+            }
+            List<StockOutboxEvent> returns = reservations.stream()
+                .filter(reservation -> cancelled.contains(reservation.getOrderId()))
+                .map(reservation -> new StockOutboxEvent(
+                    reservation.getOrderId(), reservation.getProductId(), -reservation.getDelta()))
+                .toList();
+            outboxRepository.saveAll(returns);
+            log.info("Stock outbox batch {} applied reservations of cancelled orders {}, {} returns queued",
+                batchId, cancelled, returns.size());
+        });
+    }
+    
+    private void handleRejected(String batchId, List<StockOutboxEvent> events, RuntimeException e) {
+        Map<Long, List<StockOutboxEvent>> byOrder = events.stream()
+            .collect(Collectors.groupingBy(StockOutboxEvent::getOrderId, LinkedHashMap::new, Collectors.toList()));
+        
+        if (byOrder.size() > 1) {
+            // El lote consolidado no se aplicó: se reparte en un lote por orden para aislar la rechazada
+            log.warn("Stock outbox batch {} rejected, splitting into {} per-order batches: {}",
+                batchId, byOrder.size(), DownstreamErrors.message(e));
+            List<String> orderBatches = transactionTemplate.execute(status -> byOrder.values().stream()
+                .map(orderEvents -> {
+                    String orderBatchId = UUID.randomUUID().toString();
+                    List<Long> ids = orderEvents.stream().map(StockOutboxEvent::getId).toList();
+                    outboxRepository.moveToBatch(ids, owner, orderBatchId);
+                    return orderBatchId;
+                })
+                .collect(Collectors.toList()));
+            orderBatches.forEach(this::deliver);
+            return;
+        }
+        
+        Long orderId = events.get(0).getOrderId();
+        boolean reservation = events.stream().anyMatch(event -> event.getDelta() < 0);
+        String error = DownstreamErrors.message(e);
+        log.error("Stock outbox batch {} for order {} rejected: {}", batchId, orderId, error);
+        transactionTemplate.executeWithoutResult(status -> {
+            lockOrders(events);
+            if (outboxRepository.markFailed(batchId, owner, 0, truncate(error, 500)) == 0) {
+                return;  // Ya no es nuestro: otra instancia lo retomó
+            }
+            failedCounter.increment(events.size());
+            
+            if (reservation) {
+                cancelUnreservedOrder(orderId, error);
+            } else {
+                flagForAttention(orderId, "Devolución de stock rechazada: " + error);
+            }
+        });
+    }
+    
+    /**
+     * Sin más reintentos: no se sabe si product-service llegó a aplicar el lote, así que
+     * no se cancela nada; las órdenes afectadas quedan marcadas para revisión manual
+     */
+    private void handleExhausted(String batchId, List<StockOutboxEvent> events, int attempts, RuntimeException e) {
+        String error = DownstreamErrors.message(e);
+        log.error("Stock outbox batch {} failed after {} attempts: {}", batchId, attempts, error);
+        transactionTemplate.executeWithoutResult(status -> {
+            lockOrders(events);
+            if (outboxRepository.markFailed(batchId, owner, 1, truncate(error, 500)) == 0) {
+                return;
+            }
+            failedCounter.increment(events.size());
+            events.stream()
+                .map(StockOutboxEvent::getOrderId)
+                .distinct()
+                .forEach(orderId -> flagForAttention(orderId,
+                    "Movimiento de stock sin confirmar tras " + attempts + " intentos (lote " + batchId + ")"));
+        });
+    }
+    
+    /**
+     * La reserva de la orden no se aplicó. Si sigue pendiente y sin pagos se cancela:
+     * sus otras reservas aún sin reclamar se descartan y las ya aplicadas se devuelven
+     * (las que están en otro lote las devuelve markSent). Si ya está confirmada o tiene
+     * pagos, cancelarla exige reembolsar: se marca para revisión manual.
+     */
+    private void cancelUnreservedOrder(Long orderId, String error) {
+        if (orderRepository.cancelIfPendingAndUnpaid(orderId, LocalDateTime.now()) > 0) {
+            outboxRepository.discardPendingReservations(orderId, "Reserva de stock de la orden no aplicada");
+            List<StockOutboxEvent> returns = outboxRepository.findByOrderIdAndDeltaLessThan(orderId, 0).stream()
+                .filter(reservation -> reservation.getStatus() == OutboxStatus.SENT)
+                .map(reservation -> new StockOutboxEvent(orderId, reservation.getProductId(), -reservation.getDelta()))
+                .toList();
+            outboxRepository.saveAll(returns);
+            log.warn("Order {} cancelled: stock reservation rejected ({} stock returns)", orderId, returns.size());
+            return;
+        }
+        if (orderRepository.findStatusById(orderId).orElse(OrderStatus.CANCELLED) != OrderStatus.CANCELLED) {
+            flagForAttention(orderId, "Reserva de stock rechazada: " + error);
+        }
+    }
+    
+    private void flagForAttention(Long orderId, String reason) {
+        if (orderRepository.flagForAttention(orderId, truncate(reason, 200), LocalDateTime.now()) > 0) {
+            flaggedCounter.increment();
+            log.error("Order {} requires manual attention: {}", orderId, reason);
+        }
+    }
+    
+    /**
+     * Bloquea, en orden de ID, las órdenes de los eventos (ver OrderService.cancelOrder)
+     */
+    private List<SaleOrder> lockOrders(List<StockOutboxEvent> events) {
+        List<Long> orderIds = events.stream().map(StockOutboxEvent::getOrderId).distinct().toList();
+        return orderIds.isEmpty() ? List.of() : orderRepository.findAllByIdForUpdate(orderIds);
+    }
+    
+    private void release(String batchId, int attempts, Duration backoff, RuntimeException e) {
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plus(backoff);
+        transactionTemplate.execute(status -> outboxRepository.release(
+            batchId, owner, attempts, nextAttemptAt, truncate(DownstreamErrors.message(e), 500)));
+    }
+    
+    /**
+     * initialBackoff * 2^(intento - 1), como mucho maxBackoff
+     */
+    private Duration backoff(int attempts) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 30));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+    
+    private String truncate(String message, int maxLength) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > maxLength ? message.substring(0, maxLength) : message;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ads.ecommerce.order;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Arranca la aplicación con el perfil "benchmark" para ejecutar los runners de
+ * benchmark, que viven en src/test y no forman parte del jar. Necesita la base
+ * de datos configurada y no se ejecuta en el build normal:
+ * mvn test -pl order -Dtest=OrderBenchmarks -Dbenchmark=true
+ */
+@SpringBootTest
+@ActiveProfiles("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OrderBenchmarks {
+    
+    @Test
+    void runBenchmarks() {
+        // Los CommandLineRunner del perfil se ejecutan al arrancar el contexto
+    }
+}
@@ -0,0 +1,48 @@
+package com.ads.ecommerce.order.config;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Copia de OrderLine con ID IDENTITY para la pasada de referencia de
+ * InsertBenchmarkRunner
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "bench_identity_lines")
+public class IdentityBenchLine {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "bench_order_id", nullable = false)
+    private IdentityBenchOrder benchOrder;
+    
+    @Column(nullable = false)
+    private Long productId;
+    
+    @Column(nullable = false, length = 200)
+    private String productName;
+    
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal unitPrice;
+    
+    @Column(nullable = false)
+    private Integer quantity;
+    
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal lineTotal;
+}
@@ -0,0 +1,50 @@
+package com.ads.ecommerce.order.config;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Copia de SaleOrder con ID IDENTITY, solo para la pasada de referencia de
+ * InsertBenchmarkRunner: con IDENTITY Hibernate inserta cada fila al persistirla
+ * para conocer su ID y no puede agrupar las inserciones en lotes JDBC.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "bench_identity_orders")
+public class IdentityBenchOrder {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, unique = true, length = 50)
+    private String orderNumber;
+    
+    @Column(nullable = false)
+    private Long customerId;
+    
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal total = BigDecimal.ZERO;
+    
+    @OneToMany(mappedBy = "benchOrder", cascade = CascadeType.ALL)
+    private List<IdentityBenchLine> lines = new ArrayList<>();
+    
+    public void addLine(IdentityBenchLine line) {
+        line.setBenchOrder(this);
+        lines.add(line);
+        total = total.add(line.getLineTotal());
+    }
+}
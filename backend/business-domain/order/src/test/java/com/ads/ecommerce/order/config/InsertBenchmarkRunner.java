@@ -0,0 +1,141 @@
+package com.ads.ecommerce.order.config;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ads.ecommerce.order.model.OrderLine;
+import com.ads.ecommerce.order.model.Payment;
+import com.ads.ecommerce.order.model.PaymentMethod;
+import com.ads.ecommerce.order.model.SaleOrder;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Benchmark de inserción de órdenes (perfil "benchmark").
+ * Inserta órdenes realistas en tres pasadas e informa filas por segundo de cada una:
+ * - IDENTITY: la referencia del mapeo anterior, con IdentityBenchOrder/IdentityBenchLine
+ *   (mismas columnas, ID IDENTITY, tablas propias); Hibernate inserta fila a fila
+ *   y el pago va como una línea más para insertar el mismo número de filas.
+ * - SEQUENCE sin lote JDBC: separa el efecto de los IDs del efecto del lote.
+ * - SEQUENCE con el lote configurado: el mapeo actual.
+ * Borra las órdenes al terminar.
+ */
+@Slf4j
+@Component
+@Profile("benchmark")
+public class InsertBenchmarkRunner implements CommandLineRunner {
+    
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int orders;
+    private final int linesPerOrder;
+    private final int batchSize;
+    
+    public InsertBenchmarkRunner(EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${benchmark.orders:500}") int orders,
+                                 @Value("${benchmark.lines-per-order:20}") int linesPerOrder,
+                                 @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.orders = orders;
+        this.linesPerOrder = linesPerOrder;
+        this.batchSize = batchSize;
+    }
+    
+    @Override
+    public void run(String... args) {
+        log.info("Benchmark de inserción: {} órdenes x {} líneas + 1 pago", orders, linesPerOrder);
+        run("warm-up", batchSize, "BENCH-W", this::buildOrder);
+        run("IDENTITY (mapeo anterior)", batchSize, "BENCH-I", this::buildIdentityOrder);
+        run("SEQUENCE sin lote (1 fila por sentencia)", 1, "BENCH-A", this::buildOrder);
+        run("SEQUENCE con lote (" + batchSize + ")", batchSize, "BENCH-B", this::buildOrder);
+        cleanUp();
+    }
+    
+    private void run(String label, int jdbcBatchSize, String prefix, Function<String, Object> builder) {
+        long rows = (long) orders * (linesPerOrder + 2);
+        long start = System.nanoTime();
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            for (int i = 0; i < orders; i++) {
+                entityManager.persist(builder.apply(prefix + "-" + i));
+                if ((i + 1) % 20 == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+        
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        log.info("[{}] {} filas en {} s -> {} inserts/s, {} órdenes/s",
+            label, rows, String.format("%.2f", seconds),
+            String.format("%.0f", rows / seconds), String.format("%.0f", orders / seconds));
+    }
+    
+    private SaleOrder buildOrder(String orderNumber) {
+        SaleOrder order = new SaleOrder();
+        order.setOrderNumber(orderNumber);
+        order.setCustomerId(1L);
+        
+        List<OrderLine> lines = new ArrayList<>();
+        for (int j = 0; j < linesPerOrder; j++) {
+            OrderLine line = new OrderLine();
+            line.setProductId((long) j + 1);
+            line.setProductName("Producto " + (j + 1));
+            line.setUnitPrice(new BigDecimal("19.90"));
+            line.setQuantity(1 + j % 3);
+            line.calculateLineTotal();
+            lines.add(line);
+        }
+        lines.forEach(order::addOrderLine);
+        
+        Payment payment = new Payment();
+        payment.setAmount(order.getTotal());
+        payment.setPaymentMethod(PaymentMethod.CREDIT_CARD);
+        order.addPayment(payment);
+        return order;
+    }
+    
+    private IdentityBenchOrder buildIdentityOrder(String orderNumber) {
+        IdentityBenchOrder order = new IdentityBenchOrder();
+        order.setOrderNumber(orderNumber);
+        order.setCustomerId(1L);
+        for (int j = 0; j <= linesPerOrder; j++) {
+            IdentityBenchLine line = new IdentityBenchLine();
+            line.setProductId((long) j + 1);
+            line.setProductName(j < linesPerOrder ? "Producto " + (j + 1) : "Pago");
+            line.setUnitPrice(new BigDecimal("19.90"));
+            line.setQuantity(1 + j % 3);
+            line.setLineTotal(line.getUnitPrice().multiply(BigDecimal.valueOf(line.getQuantity())));
+            order.addLine(line);
+        }
+        return order;
+    }
+    
+    private void cleanUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            String benchOrders = "(SELECT o.id FROM SaleOrder o WHERE o.orderNumber LIKE 'BENCH-%')";
+            entityManager.createQuery("DELETE FROM OrderLine l WHERE l.saleOrder.id IN " + benchOrders).executeUpdate();
+            entityManager.createQuery("DELETE FROM Payment p WHERE p.saleOrder.id IN " + benchOrders).executeUpdate();
+            entityManager.createQuery("DELETE FROM SaleOrder o WHERE o.orderNumber LIKE 'BENCH-%'").executeUpdate();
+            entityManager.createQuery("DELETE FROM IdentityBenchLine").executeUpdate();
+            entityManager.createQuery("DELETE FROM IdentityBenchOrder").executeUpdate();
+        });
+        log.info("Benchmark de inserción terminado, órdenes de prueba eliminadas");
+    }
+}
@@ -0,0 +1,114 @@
+package com.ads.ecommerce.order.config;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.ads.ecommerce.order.dto.CustomerDTO;
+import com.ads.ecommerce.order.dto.ProductDTO;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Benchmark del formato de intercambio con customer-service y product-service (perfil "benchmark").
+ * Serializa y deserializa ProductDTO y CustomerDTO (uno suelto y lotes como los
+ * de getProducts/getCustomers) en JSON indentado, JSON compacto y Smile, e
+ * informa bytes por mensaje y microsegundos de CPU por serialización y deserialización.
+ */
+@Slf4j
+@Component
+@Profile("benchmark")
+public class WireFormatBenchmarkRunner implements CommandLineRunner {
+    
+    private final JsonMapper jsonMapper;
+    private final SmileMapper smileMapper;
+    private final int iterations;
+    private final int batchSize;
+    
+    public WireFormatBenchmarkRunner(JsonMapper objectMapper,
+                                     SmileMapper smileMapper,
+                                     @Value("${benchmark.wire.iterations:20000}") int iterations,
+                                     @Value("${benchmark.wire.batch-size:200}") int batchSize) {
+        this.jsonMapper = objectMapper;
+        this.smileMapper = smileMapper;
+        this.iterations = iterations;
+        this.batchSize = batchSize;
+    }
+    
+    @Override
+    public void run(String... args) throws IOException {
+        ObjectMapper indentedJson = jsonMapper.copy().enable(SerializationFeature.INDENT_OUTPUT);
+        List<ProductDTO> products = products(batchSize);
+        List<CustomerDTO> customers = customers(batchSize);
+        
+        log.info("Benchmark de formato: {} iteraciones, lotes de {}", iterations, batchSize);
+        compare("ProductDTO", products.get(0), jsonMapper.constructType(ProductDTO.class), indentedJson);
+        compare("List<ProductDTO>", products,
+            jsonMapper.getTypeFactory().constructCollectionType(List.class, ProductDTO.class), indentedJson);
+        compare("CustomerDTO", customers.get(0), jsonMapper.constructType(CustomerDTO.class), indentedJson);
+        compare("List<CustomerDTO>", customers,
+            jsonMapper.getTypeFactory().constructCollectionType(List.class, CustomerDTO.class), indentedJson);
+    }
+    
+    private void compare(String label, Object value, JavaType type, ObjectMapper indentedJson) throws IOException {
+        measure(label, "JSON indentado", indentedJson, value, type);
+        measure(label, "JSON", jsonMapper, value, type);
+        measure(label, "Smile", smileMapper, value, type);
+    }
+    
+    private void measure(String label, String format, ObjectMapper mapper, Object value, JavaType type)
+            throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(value);
+        
+        // Calentamiento del JIT antes de medir
+        for (int i = 0; i < iterations / 10; i++) {
+            mapper.readValue(mapper.writeValueAsBytes(value), type);
+        }
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            bytes = mapper.writeValueAsBytes(value);
+        }
+        long serializeNanos = System.nanoTime() - start;
+        
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            mapper.readValue(bytes, type);
+        }
+        long deserializeNanos = System.nanoTime() - start;
+        
+        log.info("[{} | {}] {} bytes, serializar {} µs, deserializar {} µs",
+            label, format, bytes.length,
+            String.format("%.2f", serializeNanos / 1000.0 / iterations),
+            String.format("%.2f", deserializeNanos / 1000.0 / iterations));
+    }
+    
+    private List<ProductDTO> products(int count) {
+        List<ProductDTO> products = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            products.add(new ProductDTO((long) i, "SKU-" + (100000 + i), "Producto de prueba " + i,
+                new BigDecimal("19.90").add(BigDecimal.valueOf(i)), 100 + i, true));
+        }
+        return products;
+    }
+    
+    private List<CustomerDTO> customers(int count) {
+        List<CustomerDTO> customers = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            customers.add(new CustomerDTO((long) i, "CLI-" + (100000 + i), "Cliente de prueba " + i,
+                "cliente" + i + "@example.com", 0.05f, true));
+        }
+        return customers;
+    }
+}
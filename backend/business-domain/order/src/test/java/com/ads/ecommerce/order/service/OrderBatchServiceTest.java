@@ -0,0 +1,160 @@
+package com.ads.ecommerce.order.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ads.ecommerce.order.client.CustomerClient;
+import com.ads.ecommerce.order.client.ProductClient;
+import com.ads.ecommerce.order.dto.CustomerDTO;
+import com.ads.ecommerce.order.dto.OrderBatchRequest;
+import com.ads.ecommerce.order.dto.OrderBatchResponse;
+import com.ads.ecommerce.order.dto.OrderLineRequest;
+import com.ads.ecommerce.order.dto.OrderRequest;
+import com.ads.ecommerce.order.dto.ProductDTO;
+import com.ads.ecommerce.order.model.OutboxStatus;
+import com.ads.ecommerce.order.model.StockOutboxEvent;
+import com.ads.ecommerce.order.repository.SaleOrderRepository;
+import com.ads.ecommerce.order.repository.StockOutboxRepository;
+
+/**
+ * Alta masiva: las órdenes aceptadas se guardan con su reserva de stock en el
+ * outbox, sin llamar a product-service; StockOutboxRelay se encarga del envío
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.show-sql=false",
+    "order.batch.chunk-size=2"
+})
+@Import({OrderBatchService.class, OrderAssembler.class, OrderNumberGenerator.class, OrderBatchServiceTest.ExecutorConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderBatchServiceTest {
+    
+    @TestConfiguration
+    static class ExecutorConfig {
+        @Bean
+        Executor orderValidationExecutor() {
+            return Runnable::run;
+        }
+    }
+    
+    @Autowired
+    private OrderBatchService orderBatchService;
+    
+    @Autowired
+    private StockOutboxRepository outboxRepository;
+    
+    @Autowired
+    private SaleOrderRepository orderRepository;
+    
+    @MockitoBean
+    private CustomerClient customerClient;
+    
+    @MockitoBean
+    private ProductClient productClient;
+    
+    @BeforeEach
+    void setUp() {
+        outboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        
+        CustomerDTO customer = new CustomerDTO();
+        customer.setId(1L);
+        customer.setName("Cliente");
+        customer.setDiscount(0f);
+        customer.setActive(true);
+        when(customerClient.getCustomers(any())).thenReturn(List.of(customer));
+        
+        when(productClient.getProducts(any())).thenReturn(List.of(product(10L, 5), product(20L, 100)));
+    }
+    
+    @Test
+    void acceptedOrdersAreSavedWithTheirReservationsInTheOutbox() {
+        OrderBatchResponse response = orderBatchService.createOrders(batch(
+            order(1L, line(10L, 2), line(20L, 1), line(20L, 3)),
+            order(1L, line(10L, 2)),
+            order(1L, line(10L, 2)),
+            order(1L, line(20L, 1))));
+        
+        assertThat(response.getAccepted()).isEqualTo(3);
+        assertThat(response.getResults())
+            .extracting(OrderBatchResponse.OrderBatchResult::getIndex, OrderBatchResponse.OrderBatchResult::isSuccess)
+            .containsExactly(tuple(0, true), tuple(1, true), tuple(2, false), tuple(3, true));
+        assertThat(response.getResults().get(2).getError()).startsWith("Stock insuficiente");
+        
+        Long first = response.getResults().get(0).getOrderId();
+        Long second = response.getResults().get(1).getOrderId();
+        Long fourth = response.getResults().get(3).getOrderId();
+        assertThat(outboxRepository.findAll())
+            .extracting(StockOutboxEvent::getOrderId, StockOutboxEvent::getProductId,
+                        StockOutboxEvent::getDelta, StockOutboxEvent::getStatus)
+            .containsExactlyInAnyOrder(
+                tuple(first, 10L, -2, OutboxStatus.PENDING),
+                tuple(first, 20L, -4, OutboxStatus.PENDING),
+                tuple(second, 10L, -2, OutboxStatus.PENDING),
+                tuple(fourth, 20L, -1, OutboxStatus.PENDING));
+        verify(productClient, never()).updateStockBatch(any());
+    }
+    
+    @Test
+    void rejectedOrdersLeaveNoOrderAndNoReservation() {
+        OrderBatchResponse response = orderBatchService.createOrders(batch(
+            order(2L, line(10L, 1)),
+            order(1L, line(30L, 1))));
+        
+        assertThat(response.getAccepted()).isZero();
+        assertThat(response.getResults())
+            .extracting(OrderBatchResponse.OrderBatchResult::getError)
+            .containsExactly("Cliente no encontrado: 2", "Producto no encontrado: 30");
+        assertThat(orderRepository.count()).isZero();
+        assertThat(outboxRepository.count()).isZero();
+    }
+    
+    private static OrderBatchRequest batch(OrderRequest... orders) {
+        OrderBatchRequest request = new OrderBatchRequest();
+        request.setOrders(List.of(orders));
+        return request;
+    }
+    
+    private static OrderRequest order(Long customerId, OrderLineRequest... items) {
+        OrderRequest request = new OrderRequest();
+        request.setCustomerId(customerId);
+        request.setItems(List.of(items));
+        return request;
+    }
+    
+    private static OrderLineRequest line(Long productId, int quantity) {
+        OrderLineRequest line = new OrderLineRequest();
+        line.setProductId(productId);
+        line.setQuantity(quantity);
+        return line;
+    }
+    
+    private static ProductDTO product(Long id, int stock) {
+        ProductDTO product = new ProductDTO();
+        product.setId(id);
+        product.setName("Producto " + id);
+        product.setPrice(new BigDecimal("5.00"));
+        product.setStock(stock);
+        product.setAvailable(true);
+        return product;
+    }
+}
@@ -0,0 +1,346 @@
+package com.ads.ecommerce.order.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ads.ecommerce.order.cache.CustomerCache;
+import com.ads.ecommerce.order.client.ProductClient;
+import com.ads.ecommerce.order.dto.StockBatchRequest;
+import com.ads.ecommerce.order.exception.DownstreamNotFoundException;
+import com.ads.ecommerce.order.model.OrderLine;
+import com.ads.ecommerce.order.model.OrderStatus;
+import com.ads.ecommerce.order.model.OutboxStatus;
+import com.ads.ecommerce.order.model.SaleOrder;
+import com.ads.ecommerce.order.model.StockOutboxEvent;
+import com.ads.ecommerce.order.repository.SaleOrderRepository;
+import com.ads.ecommerce.order.repository.StockOutboxRepository;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Entrega del outbox de stock contra un ProductClient simulado: reintentos con el
+ * mismo requestId y backoff, llamadas no permitidas, reparto por orden tras un
+ * rechazo, lease entre instancias, órdenes marcadas para revisión manual y
+ * devoluciones de órdenes canceladas según el estado de su reserva
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.show-sql=false",
+    "order.outbox.relay-initial-delay-ms=3600000",
+    "order.outbox.max-attempts=2",
+    "order.outbox.retry-initial-backoff-ms=60000",
+    "order.outbox.lease-ms=60000"
+})
+@Import({StockOutboxRelay.class, OrderService.class, OptimisticRetryExecutor.class, StockOutboxRelayTest.MetricsConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockOutboxRelayTest {
+    
+    @TestConfiguration
+    static class MetricsConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+    
+    @Autowired
+    private StockOutboxRelay relay;
+    
+    @Autowired
+    private StockOutboxRepository outboxRepository;
+    
+    @Autowired
+    private SaleOrderRepository orderRepository;
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @MockitoBean
+    private ProductClient productClient;
+    
+    @MockitoBean
+    private CustomerCache customerCache;
+    
+    @MockitoBean
+    private OrderValidationService orderValidationService;
+    
+    @MockitoBean
+    private OrderAssembler orderAssembler;
+    
+    @BeforeEach
+    void setUp() {
+        outboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        reset(productClient);
+    }
+    
+    @Test
+    void transientFailureIsRetriedAfterBackoffWithTheSameRequestId() {
+        SaleOrder order = order("ORD-1", BigDecimal.ZERO);
+        outboxRepository.save(new StockOutboxEvent(order.getId(), 10L, -2));
+        when(productClient.updateStockBatch(any()))
+            .thenThrow(new RuntimeException("Servicio no disponible"))
+            .thenReturn(List.of());
+        
+        relay.relay();
+        StockOutboxEvent event = outboxRepository.findAll().get(0);
+        assertThat(event.getStatus()).isEqualTo(OutboxStatus.SENDING);
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getClaimedBy()).isNull();
+        assertThat(event.getNextAttemptAt()).isAfter(LocalDateTime.now());
+        
+        relay.relay();
+        verify(productClient, times(1)).updateStockBatch(any());
+        
+        expireBackoff();
+        relay.relay();
+        
+        ArgumentCaptor<StockBatchRequest> requests = ArgumentCaptor.forClass(StockBatchRequest.class);
+        verify(productClient, times(2)).updateStockBatch(requests.capture());
+        assertThat(requests.getAllValues().get(1).getRequestId()).isEqualTo(requests.getAllValues().get(0).getRequestId());
+        assertThat(outboxRepository.findAll().get(0).getStatus()).isEqualTo(OutboxStatus.SENT);
+    }
+    
+    @Test
+    void callsNotPermittedByTheCircuitBreakerDoNotUseAttempts() {
+        SaleOrder order = order("ORD-1", BigDecimal.ZERO);
+        outboxRepository.save(new StockOutboxEvent(order.getId(), 10L, -2));
+        when(productClient.updateStockBatch(any())).thenThrow(
+            CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("product-service")));
+        
+        relay.relay();
+        expireBackoff();
+        relay.relay();
+        
+        StockOutboxEvent event = outboxRepository.findAll().get(0);
+        assertThat(event.getStatus()).isEqualTo(OutboxStatus.SENDING);
+        assertThat(event.getAttempts()).isZero();
+        assertThat(orderRepository.findById(order.getId()).orElseThrow().getStatus()).isEqualTo(OrderStatus.PENDING);
+    }
+    
+    @Test
+    void rejectedBatchIsSplitPerOrderAndOnlyUnpaidPendingOrdersAreCancelled() {
+        SaleOrder unpaid = order("ORD-1", BigDecimal.ZERO);
+        SaleOrder paid = order("ORD-2", new BigDecimal("5.00"));
+        SaleOrder valid = order("ORD-3", BigDecimal.ZERO);
+        outboxRepository.saveAll(List.of(
+            new StockOutboxEvent(unpaid.getId(), 10L, -2),
+            new StockOutboxEvent(paid.getId(), 11L, -1),
+            new StockOutboxEvent(valid.getId(), 12L, -1)));
+        when(productClient.updateStockBatch(any())).thenAnswer(invocation -> {
+            Set<Long> products = productIds(invocation.getArgument(0));
+            if (products.size() > 1 || products.contains(10L)) {
+                throw new IllegalArgumentException("Stock insuficiente");
+            }
+            if (products.contains(11L)) {
+                throw new DownstreamNotFoundException("Producto no encontrado");
+            }
+            return List.of();
+        });
+        
+        relay.relay();
+        
+        verify(productClient, times(4)).updateStockBatch(any());
+        assertThat(status(unpaid)).isEqualTo(OrderStatus.CANCELLED);
+        SaleOrder flagged = orderRepository.findById(paid.getId()).orElseThrow();
+        assertThat(flagged.getStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(flagged.getAttentionReason()).startsWith("Reserva de stock rechazada");
+        assertThat(status(valid)).isEqualTo(OrderStatus.PENDING);
+        assertThat(outboxRepository.findAll()).extracting(StockOutboxEvent::getProductId, StockOutboxEvent::getStatus)
+            .containsExactlyInAnyOrder(
+                tuple(10L, OutboxStatus.FAILED),
+                tuple(11L, OutboxStatus.FAILED),
+                tuple(12L, OutboxStatus.SENT));
+    }
+    
+    @Test
+    void batchLeasedByAnotherInstanceIsOnlyRedeliveredOnceTheLeaseExpires() {
+        SaleOrder order = order("ORD-1", BigDecimal.ZERO);
+        StockOutboxEvent event = new StockOutboxEvent(order.getId(), 10L, -2);
+        event.setStatus(OutboxStatus.SENDING);
+        event.setBatchId("batch-other");
+        event.setClaimedBy("other-instance");
+        event.setClaimedAt(LocalDateTime.now());
+        outboxRepository.save(event);
+        
+        relay.relay();
+        verify(productClient, never()).updateStockBatch(any());
+        
+        StockOutboxEvent leased = outboxRepository.findAll().get(0);
+        leased.setClaimedAt(LocalDateTime.now().minusMinutes(2));
+        outboxRepository.save(leased);
+        relay.relay();
+        
+        ArgumentCaptor<StockBatchRequest> request = ArgumentCaptor.forClass(StockBatchRequest.class);
+        verify(productClient).updateStockBatch(request.capture());
+        assertThat(request.getValue().getRequestId()).isEqualTo("batch-other");
+        assertThat(outboxRepository.findAll().get(0).getStatus()).isEqualTo(OutboxStatus.SENT);
+    }
+    
+    @Test
+    void reservationWithoutMoreAttemptsFlagsTheOrderInsteadOfCancellingIt() {
+        SaleOrder order = order("ORD-1", BigDecimal.ZERO);
+        outboxRepository.save(new StockOutboxEvent(order.getId(), 10L, -2));
+        when(productClient.updateStockBatch(any())).thenThrow(new RuntimeException("Read timed out"));
+        
+        relay.relay();
+        expireBackoff();
+        relay.relay();
+        
+        verify(productClient, atLeastOnce()).updateStockBatch(any());
+        assertThat(outboxRepository.findAll().get(0).getStatus()).isEqualTo(OutboxStatus.FAILED);
+        SaleOrder flagged = orderRepository.findById(order.getId()).orElseThrow();
+        assertThat(flagged.getStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(flagged.getAttentionReason()).startsWith("Movimiento de stock sin confirmar tras 2 intentos");
+    }
+    
+    @Test
+    void orderLoadedBeforeTheRelayCancelsItCannotBeSavedOverTheCancellation() {
+        SaleOrder order = order("ORD-1", BigDecimal.ZERO);
+        outboxRepository.save(new StockOutboxEvent(order.getId(), 10L, -2));
+        when(productClient.updateStockBatch(any())).thenThrow(new IllegalArgumentException("Stock insuficiente"));
+        SaleOrder stale = orderRepository.findById(order.getId()).orElseThrow();
+        
+        relay.relay();
+        
+        stale.setNotes("Confirmada por teléfono");
+        assertThatThrownBy(() -> orderRepository.save(stale))
+            .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(status(order)).isEqualTo(OrderStatus.CANCELLED);
+    }
+    
+    @Test
+    void cancellationBeforeTheReservationIsClaimedDiscardsItWithoutReturningStock() {
+        SaleOrder order = order("ORD-1", BigDecimal.ZERO);
+        outboxRepository.save(new StockOutboxEvent(order.getId(), 10L, -2));
+        
+        orderService.cancelOrder(order.getId());
+        relay.relay();
+        
+        verify(productClient, never()).updateStockBatch(any());
+        assertThat(outboxRepository.findAll()).extracting(StockOutboxEvent::getDelta, StockOutboxEvent::getStatus)
+            .containsExactly(tuple(-2, OutboxStatus.FAILED));
+    }
+    
+    @Test
+    void cancellationWhileTheReservationIsInFlightReturnsTheStockOnceItIsApplied() {
+        SaleOrder order = order("ORD-1", BigDecimal.ZERO);
+        outboxRepository.save(new StockOutboxEvent(order.getId(), 10L, -2));
+        when(productClient.updateStockBatch(any())).thenAnswer(invocation -> {
+            orderService.cancelOrder(order.getId());
+            assertThat(outboxRepository.findAll()).hasSize(1);  // cancelOrder no devuelve una reserva en vuelo
+            return List.of();
+        }).thenReturn(List.of());
+        
+        relay.relay();
+        
+        assertThat(status(order)).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(outboxRepository.findAll()).extracting(StockOutboxEvent::getDelta, StockOutboxEvent::getStatus)
+            .containsExactlyInAnyOrder(
+                tuple(-2, OutboxStatus.SENT),
+                tuple(2, OutboxStatus.SENT));
+        ArgumentCaptor<StockBatchRequest> requests = ArgumentCaptor.forClass(StockBatchRequest.class);
+        verify(productClient, times(2)).updateStockBatch(requests.capture());
+        assertThat(requests.getAllValues().get(1).getItems())
+            .extracting(StockBatchRequest.StockBatchItem::getProductId, StockBatchRequest.StockBatchItem::getOperation)
+            .containsExactly(tuple(10L, StockBatchRequest.StockOperation.ADD));
+    }
+    
+    @Test
+    void cancellationWhileTheReservationIsInFlightReturnsNothingIfItIsRejected() {
+        SaleOrder order = order("ORD-1", BigDecimal.ZERO);
+        outboxRepository.save(new StockOutboxEvent(order.getId(), 10L, -2));
+        when(productClient.updateStockBatch(any())).thenAnswer(invocation -> {
+            orderService.cancelOrder(order.getId());
+            throw new IllegalArgumentException("Stock insuficiente");
+        });
+        
+        relay.relay();
+        
+        assertThat(status(order)).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(outboxRepository.findAll()).extracting(StockOutboxEvent::getDelta, StockOutboxEvent::getStatus)
+            .containsExactly(tuple(-2, OutboxStatus.FAILED));
+    }
+    
+    @Test
+    void cancellationAfterTheReservationWasAppliedReturnsTheStock() {
+        SaleOrder order = order("ORD-1", BigDecimal.ZERO);
+        outboxRepository.save(new StockOutboxEvent(order.getId(), 10L, -2));
+        when(productClient.updateStockBatch(any())).thenReturn(List.of());
+        relay.relay();
+        
+        orderService.cancelOrder(order.getId());
+        relay.relay();
+        
+        ArgumentCaptor<StockBatchRequest> requests = ArgumentCaptor.forClass(StockBatchRequest.class);
+        verify(productClient, times(2)).updateStockBatch(requests.capture());
+        assertThat(requests.getAllValues().get(1).getItems())
+            .extracting(StockBatchRequest.StockBatchItem::getProductId, StockBatchRequest.StockBatchItem::getQuantity,
+                        StockBatchRequest.StockBatchItem::getOperation)
+            .containsExactly(tuple(10L, 2, StockBatchRequest.StockOperation.ADD));
+    }
+    
+    /**
+     * Orden con una línea de 2 unidades del producto 10 (total 10.00)
+     */
+    private SaleOrder order(String orderNumber, BigDecimal totalPaid) {
+        SaleOrder order = new SaleOrder();
+        order.setOrderNumber(orderNumber);
+        order.setCustomerId(1L);
+        OrderLine line = new OrderLine();
+        line.setProductId(10L);
+        line.setProductName("Producto 10");
+        line.setUnitPrice(new BigDecimal("5.00"));
+        line.setQuantity(2);
+        line.calculateLineTotal();
+        order.addOrderLine(line);
+        order.setTotalPaid(totalPaid);
+        return orderRepository.save(order);
+    }
+    
+    private OrderStatus status(SaleOrder order) {
+        return orderRepository.findById(order.getId()).orElseThrow().getStatus();
+    }
+    
+    private void expireBackoff() {
+        List<StockOutboxEvent> events = outboxRepository.findAll();
+        events.forEach(event -> event.setNextAttemptAt(LocalDateTime.now().minusSeconds(1)));
+        outboxRepository.saveAll(events);
+    }
+    
+    private static Set<Long> productIds(StockBatchRequest request) {
+        return request.getItems().stream()
+            .map(StockBatchRequest.StockBatchItem::getProductId)
+            .collect(Collectors.toSet());
+    }
+}
@@ -2,11 +2,15 @@ package com.ads.ecommerce.product.controller;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.function.Supplier;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -15,11 +19,18 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.ads.ecommerce.product.dto.CursorPage;
+import com.ads.ecommerce.product.dto.FacetedProductPage;
+import com.ads.ecommerce.product.dto.ListView;
+import com.ads.ecommerce.product.dto.ProductFacetRequest;
 import com.ads.ecommerce.product.dto.ProductRequest;
 import com.ads.ecommerce.product.dto.ProductResponse;
+import com.ads.ecommerce.product.dto.StockBatchRequest;
 import com.ads.ecommerce.product.dto.StockUpdateRequest;
 import com.ads.ecommerce.product.model.ProductCategory;
+import com.ads.ecommerce.product.service.CatalogVersion;
 import com.ads.ecommerce.product.service.ProductService;
 
 import jakarta.validation.Valid;
@@ -33,6 +44,7 @@ import lombok.extern.slf4j.Slf4j;
 public class ProductController {
     
     private final ProductService productService;
+    private final CatalogVersion catalogVersion;
     
     @PostMapping
     public ResponseEntity<ProductResponse> createProduct(
@@ -56,48 +68,114 @@ public class ProductController {
         return ResponseEntity.ok(response);
     }
     
-    @GetMapping
-    public ResponseEntity<List<ProductResponse>> getAllProducts(
-            @RequestParam(required = false) Boolean available) {
-        log.info("GET /api/v1/products?available={}", available);
+    @GetMapping("/batch")
+    public ResponseEntity<List<ProductResponse>> getProductsBatch(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) List<String> skus) {
+        log.info("GET /api/v1/products/batch?ids={}&skus={}", ids, skus);
+        
+        if ((ids == null || ids.isEmpty()) == (skus == null || skus.isEmpty())) {
+            throw new IllegalArgumentException("Debe indicar 'ids' o 'skus', pero no ambos");
+        }
         
-        List<ProductResponse> response = available != null && available
-            ? productService.getAvailableProducts()
-            : productService.getAllProducts();
+        List<ProductResponse> response = ids != null && !ids.isEmpty()
+            ? productService.getProductsByIds(ids)
+            : productService.getProductsBySkus(skus);
         
         return ResponseEntity.ok(response);
     }
     
+    @GetMapping
+    public ResponseEntity<CursorPage<?>> getAllProducts(
+            @RequestParam(required = false) Boolean available,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String view,
+            WebRequest webRequest) {
+        log.info("GET /api/v1/products?available={}&cursor={}&size={}&view={}", available, cursor, size, view);
+        
+        boolean summary = ListView.from(view) == ListView.SUMMARY;
+        boolean onlyAvailable = available != null && available;
+        return conditional(webRequest, () -> {
+            if (summary) {
+                return onlyAvailable
+                    ? productService.getAvailableProductSummaries(cursor, size)
+                    : productService.getProductSummaries(cursor, size);
+            }
+            return onlyAvailable
+                ? productService.getAvailableProducts(cursor, size)
+                : productService.getAllProducts(cursor, size);
+        });
+    }
+    
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<ProductResponse>> getProductsByCategory(
-            @PathVariable ProductCategory category) {
+    public ResponseEntity<CursorPage<?>> getProductsByCategory(
+            @PathVariable ProductCategory category,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String view,
+            WebRequest webRequest) {
         log.info("GET /api/v1/products/category/{}", category);
-        List<ProductResponse> response = productService.getProductsByCategory(category);
-        return ResponseEntity.ok(response);
+        boolean summary = ListView.from(view) == ListView.SUMMARY;
+        return conditional(webRequest, () -> summary
+            ? productService.getProductSummariesByCategory(category, cursor, size)
+            : productService.getProductsByCategory(category, cursor, size));
     }
     
     @GetMapping("/search")
-    public ResponseEntity<List<ProductResponse>> searchProducts(
-            @RequestParam String name) {
+    public ResponseEntity<CursorPage<?>> searchProducts(
+            @RequestParam String name,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String view,
+            WebRequest webRequest) {
         log.info("GET /api/v1/products/search?name={}", name);
-        List<ProductResponse> response = productService.searchProducts(name);
-        return ResponseEntity.ok(response);
+        boolean summary = ListView.from(view) == ListView.SUMMARY;
+        return conditional(webRequest, () -> summary
+            ? productService.searchProductSummaries(name, cursor, size)
+            : productService.searchProducts(name, cursor, size));
     }
     
     @GetMapping("/price-range")
-    public ResponseEntity<List<ProductResponse>> getProductsByPriceRange(
+    public ResponseEntity<CursorPage<?>> getProductsByPriceRange(
             @RequestParam BigDecimal minPrice,
-            @RequestParam BigDecimal maxPrice) {
+            @RequestParam BigDecimal maxPrice,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String view,
+            WebRequest webRequest) {
         log.info("GET /api/v1/products/price-range?minPrice={}&maxPrice={}", minPrice, maxPrice);
-        List<ProductResponse> response = productService.getProductsByPriceRange(minPrice, maxPrice);
-        return ResponseEntity.ok(response);
+        boolean summary = ListView.from(view) == ListView.SUMMARY;
+        return conditional(webRequest, () -> summary
+            ? productService.getProductSummariesByPriceRange(minPrice, maxPrice, cursor, size)
+            : productService.getProductsByPriceRange(minPrice, maxPrice, cursor, size));
+    }
+    
+    /**
+     * Filtros combinables, p. ej.
+     * ?categories=ELECTRONICS&available=true&minPrice=100&maxPrice=500&lowStock=true
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<FacetedProductPage> getFacetedProducts(
+            @ModelAttribute ProductFacetRequest filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            WebRequest webRequest) {
+        log.info("GET /api/v1/products/facets {}", filter);
+        return conditional(webRequest, () -> productService.getFacetedProducts(filter, cursor, size));
     }
     
     @GetMapping("/low-stock")
-    public ResponseEntity<List<ProductResponse>> getLowStockProducts() {
+    public ResponseEntity<CursorPage<?>> getLowStockProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String view,
+            WebRequest webRequest) {
         log.info("GET /api/v1/products/low-stock");
-        List<ProductResponse> response = productService.getLowStockProducts();
-        return ResponseEntity.ok(response);
+        boolean summary = ListView.from(view) == ListView.SUMMARY;
+        return conditional(webRequest, () -> summary
+            ? productService.getLowStockProductSummaries(cursor, size)
+            : productService.getLowStockProducts(cursor, size));
     }
     
     @PutMapping("/{id}")
@@ -118,6 +196,14 @@ public class ProductController {
         return ResponseEntity.ok(response);
     }
     
+    @PatchMapping("/stock")
+    public ResponseEntity<List<ProductResponse>> updateStockBatch(
+            @RequestBody @Valid StockBatchRequest request) {
+        log.info("PATCH /api/v1/products/stock ({} items)", request.getItems().size());
+        List<ProductResponse> response = productService.updateStockBatch(request);
+        return ResponseEntity.ok(response);
+    }
+    
     @PatchMapping("/{id}/deactivate")
     public ResponseEntity<Void> deactivateProduct(@PathVariable Long id) {
         log.info("PATCH /api/v1/products/{}/deactivate", id);
@@ -145,4 +231,28 @@ public class ProductController {
         productService.deleteProduct(id);
         return ResponseEntity.noContent().build();
     }
+    
+    /**
+     * GET condicional de los listados del catálogo. El ETag sale de la versión
+     * del catálogo, leída antes de consultar: si coincide con If-None-Match se
+     * responde 304 sin consultar la base de datos ni serializar.
+     * no-cache obliga a revalidar en cada sondeo en lugar de servir copias viejas.
+     * El ETag es el mismo para JSON y Smile: Vary: Accept evita que una caché
+     * intermedia entregue una representación a quien pidió la otra.
+     */
+    private <T> ResponseEntity<T> conditional(WebRequest webRequest, Supplier<T> query) {
+        String etag = catalogVersion.etag();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT)
+                .build();
+        }
+        return ResponseEntity.ok()
+            .eTag(etag)
+            .cacheControl(CacheControl.noCache())
+            .varyBy(HttpHeaders.ACCEPT)
+            .body(query.get());
+    }
 }
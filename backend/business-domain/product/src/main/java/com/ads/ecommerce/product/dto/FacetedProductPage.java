@@ -0,0 +1,22 @@
+package com.ads.ecommerce.product.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Página del listado facetado (por ID, con cursor como CursorPage), el total
+ * de productos que cumplen los filtros y los recuentos por faceta
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetedProductPage {
+    private List<ProductResponse> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private int total;
+    private ProductFacetCounts facets;
+}
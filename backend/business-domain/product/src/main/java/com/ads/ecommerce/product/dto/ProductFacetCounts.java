@@ -0,0 +1,26 @@
+package com.ads.ecommerce.product.dto;
+
+import java.util.Map;
+
+import com.ads.ecommerce.product.model.ProductCategory;
+import com.ads.ecommerce.product.model.ProductStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Recuentos por faceta. Cada faceta se cuenta con el resto de filtros aplicados pero
+ * no el suyo, para que el cliente vea cuántos resultados daría cambiar ese filtro.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetCounts {
+    private Map<ProductCategory, Integer> categories;
+    private Map<ProductStatus, Integer> statuses;
+    private Map<String, Integer> priceRanges;
+    private Integer active;
+    private Integer available;
+    private Integer lowStock;
+}
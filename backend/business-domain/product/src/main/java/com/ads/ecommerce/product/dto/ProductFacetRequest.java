@@ -0,0 +1,29 @@
+package com.ads.ecommerce.product.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.ads.ecommerce.product.model.ProductCategory;
+import com.ads.ecommerce.product.model.ProductStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filtros combinables del listado facetado. Dentro de categories y statuses
+ * basta con uno de los valores; entre filtros distintos tienen que cumplirse todos.
+ * Un filtro sin valor no se aplica.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetRequest {
+    private List<ProductCategory> categories;
+    private List<ProductStatus> statuses;
+    private Boolean active;
+    private Boolean available;
+    private Boolean lowStock;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+}
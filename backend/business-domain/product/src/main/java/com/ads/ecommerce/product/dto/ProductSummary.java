@@ -0,0 +1,40 @@
+package com.ads.ecommerce.product.dto;
+
+import java.math.BigDecimal;
+
+import com.ads.ecommerce.product.model.ProductCategory;
+import com.ads.ecommerce.product.model.ProductStatus;
+
+/**
+ * Producto en un listado resumido (?view=summary): sin descripción, imagen ni fechas.
+ * Las consultas de resumen de ProductRepository lo construyen directamente (SELECT new),
+ * leyendo solo estas columnas y sin cargar entidades en el contexto de persistencia.
+ */
+public record ProductSummary(
+        Long id,
+        String sku,
+        String name,
+        BigDecimal price,
+        Integer stock,
+        ProductCategory category,
+        ProductStatus status,
+        Boolean active,
+        Boolean available,
+        Boolean lowStock) {
+    
+    /**
+     * Usado por las consultas; available y lowStock siguen las reglas de Product
+     */
+    public ProductSummary(Long id, String sku, String name, BigDecimal price, Integer stock,
+                          ProductCategory category, ProductStatus status, Boolean active) {
+        this(id, sku, name, price, stock, category, status, active,
+            Boolean.TRUE.equals(active) && status == ProductStatus.AVAILABLE && stock > 0,
+            stock > 0 && stock < 10);
+    }
+    
+    public static ProductSummary from(ProductResponse product) {
+        return new ProductSummary(product.getId(), product.getSku(), product.getName(), product.getPrice(),
+            product.getStock(), product.getCategory(), product.getStatus(), product.getActive(),
+            product.getAvailable(), product.getLowStock());
+    }
+}
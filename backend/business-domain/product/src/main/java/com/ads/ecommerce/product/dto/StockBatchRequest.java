@@ -0,0 +1,42 @@
+package com.ads.ecommerce.product.dto;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockBatchRequest {
+    
+    /** Identificador del lote para reintentos idempotentes (opcional) */
+    @Size(max = 64, message = "El requestId no puede superar 64 caracteres")
+    private String requestId;
+    
+    @NotEmpty(message = "Debe incluir al menos un movimiento de stock")
+    @Valid
+    private List<StockBatchItem> items;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StockBatchItem {
+        
+        @NotNull(message = "El ID del producto es obligatorio")
+        private Long productId;
+        
+        @NotNull(message = "La cantidad es obligatoria")
+        @Min(value = 1, message = "La cantidad debe ser mayor a 0")
+        private Integer quantity;
+        
+        @NotNull(message = "La operación es obligatoria")
+        private StockUpdateRequest.StockOperation operation;
+    }
+}
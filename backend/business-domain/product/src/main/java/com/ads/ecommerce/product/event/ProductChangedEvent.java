@@ -0,0 +1,15 @@
+package com.ads.ecommerce.product.event;
+
+import java.util.Set;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Se publica cuando se crean, modifican o eliminan productos
+ */
+@Data
+@AllArgsConstructor
+public class ProductChangedEvent {
+    private Set<Long> productIds;
+}
@@ -0,0 +1,7 @@
+package com.ads.ecommerce.product.exception;
+
+public class CatalogUnavailableException extends RuntimeException {
+    public CatalogUnavailableException(String message) {
+        super(message);
+    }
+}
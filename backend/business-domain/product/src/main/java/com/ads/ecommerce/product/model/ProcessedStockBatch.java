@@ -0,0 +1,37 @@
+package com.ads.ecommerce.product.model;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Registro de lotes de stock ya aplicados, para que los reintentos
+ * de un mismo lote (mismo requestId) no se apliquen dos veces
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "processed_stock_batches")
+public class ProcessedStockBatch {
+    
+    @Id
+    @Column(length = 64)
+    private String requestId;
+    
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime processedAt;
+    
+    public ProcessedStockBatch(String requestId) {
+        this.requestId = requestId;
+    }
+}
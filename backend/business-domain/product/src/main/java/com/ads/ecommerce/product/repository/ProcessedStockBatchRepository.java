@@ -0,0 +1,10 @@
+package com.ads.ecommerce.product.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.ads.ecommerce.product.model.ProcessedStockBatch;
+
+@Repository
+public interface ProcessedStockBatchRepository extends JpaRepository<ProcessedStockBatch, String> {
+}
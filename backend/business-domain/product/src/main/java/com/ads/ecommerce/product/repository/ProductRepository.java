@@ -1,14 +1,19 @@
 package com.ads.ecommerce.product.repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.ads.ecommerce.product.dto.ProductSummary;
 import com.ads.ecommerce.product.model.Product;
 import com.ads.ecommerce.product.model.ProductCategory;
 import com.ads.ecommerce.product.model.ProductStatus;
@@ -19,6 +24,8 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     Optional<Product> findBySku(String sku);
     
+    List<Product> findBySkuIn(Collection<String> skus);
+    
     List<Product> findByActive(Boolean active);
     
     List<Product> findByCategory(ProductCategory category);
@@ -38,5 +45,110 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.stock > 0 AND p.stock < 10")
     List<Product> findLowStockProducts();
     
+    // ============================================================
+    // PAGINACIÓN POR CURSOR (keyset sobre el ID)
+    // ============================================================
+    
+    @Query("SELECT p FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Product> findPage(@Param("afterId") Long afterId, Limit limit);
+    
+    @Query("SELECT p FROM Product p WHERE p.active = true AND p.status = 'AVAILABLE' AND p.stock > 0 " +
+           "AND p.id > :afterId ORDER BY p.id")
+    List<Product> findAvailablePage(@Param("afterId") Long afterId, Limit limit);
+    
+    @Query("SELECT p FROM Product p WHERE p.category = :category AND p.id > :afterId ORDER BY p.id")
+    List<Product> findPageByCategory(@Param("category") ProductCategory category,
+                                     @Param("afterId") Long afterId, Limit limit);
+    
+    @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) " +
+           "AND p.id > :afterId ORDER BY p.id")
+    List<Product> searchPageByName(@Param("name") String name,
+                                   @Param("afterId") Long afterId, Limit limit);
+    
+    @Query("SELECT p FROM Product p WHERE p.price BETWEEN :minPrice AND :maxPrice " +
+           "AND p.id > :afterId ORDER BY p.id")
+    List<Product> findPageByPriceRange(@Param("minPrice") BigDecimal minPrice,
+                                       @Param("maxPrice") BigDecimal maxPrice,
+                                       @Param("afterId") Long afterId, Limit limit);
+    
+    @Query("SELECT p FROM Product p WHERE p.stock > 0 AND p.stock < 10 AND p.id > :afterId ORDER BY p.id")
+    List<Product> findLowStockPage(@Param("afterId") Long afterId, Limit limit);
+    
+    // ============================================================
+    // VISTA RESUMIDA (?view=summary): solo las columnas del listado
+    // ============================================================
+    
+    String SUMMARY_SELECT = "SELECT new com.ads.ecommerce.product.dto.ProductSummary(" +
+                            "p.id, p.sku, p.name, p.price, p.stock, p.category, p.status, p.active) FROM Product p ";
+    
+    @Query(SUMMARY_SELECT + "WHERE p.id > :afterId ORDER BY p.id")
+    List<ProductSummary> findSummaryPage(@Param("afterId") Long afterId, Limit limit);
+    
+    @Query(SUMMARY_SELECT + "WHERE p.active = true AND p.status = 'AVAILABLE' AND p.stock > 0 " +
+           "AND p.id > :afterId ORDER BY p.id")
+    List<ProductSummary> findAvailableSummaryPage(@Param("afterId") Long afterId, Limit limit);
+    
+    @Query(SUMMARY_SELECT + "WHERE p.category = :category AND p.id > :afterId ORDER BY p.id")
+    List<ProductSummary> findSummaryPageByCategory(@Param("category") ProductCategory category,
+                                                   @Param("afterId") Long afterId, Limit limit);
+    
+    @Query(SUMMARY_SELECT + "WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) " +
+           "AND p.id > :afterId ORDER BY p.id")
+    List<ProductSummary> searchSummaryPageByName(@Param("name") String name,
+                                                 @Param("afterId") Long afterId, Limit limit);
+    
+    @Query(SUMMARY_SELECT + "WHERE p.price BETWEEN :minPrice AND :maxPrice " +
+           "AND p.id > :afterId ORDER BY p.id")
+    List<ProductSummary> findSummaryPageByPriceRange(@Param("minPrice") BigDecimal minPrice,
+                                                     @Param("maxPrice") BigDecimal maxPrice,
+                                                     @Param("afterId") Long afterId, Limit limit);
+    
+    @Query(SUMMARY_SELECT + "WHERE p.stock > 0 AND p.stock < 10 AND p.id > :afterId ORDER BY p.id")
+    List<ProductSummary> findLowStockSummaryPage(@Param("afterId") Long afterId, Limit limit);
+    
+    /**
+     * Descuenta stock solo si hay unidades suficientes, en una única sentencia.
+     * Devuelve 0 si el producto no existe o no tiene stock suficiente.
+     * El estado se asigna antes que el stock porque MySQL evalúa el SET de izquierda a derecha.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET " +
+           "p.status = CASE WHEN p.stock - :quantity = 0 THEN com.ads.ecommerce.product.model.ProductStatus.OUT_OF_STOCK " +
+           "WHEN p.status = com.ads.ecommerce.product.model.ProductStatus.OUT_OF_STOCK THEN com.ads.ecommerce.product.model.ProductStatus.AVAILABLE " +
+           "ELSE p.status END, " +
+           "p.stock = p.stock - :quantity, p.version = p.version + 1, p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id = :id AND p.stock >= :quantity")
+    int decreaseStockIfAvailable(@Param("id") Long id, @Param("quantity") Integer quantity);
+    
+    /**
+     * Incrementa stock en una única sentencia. Devuelve 0 si el producto no existe.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET " +
+           "p.status = CASE WHEN p.status = com.ads.ecommerce.product.model.ProductStatus.OUT_OF_STOCK " +
+           "THEN com.ads.ecommerce.product.model.ProductStatus.AVAILABLE ELSE p.status END, " +
+           "p.stock = p.stock + :quantity, p.version = p.version + 1, p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id = :id")
+    int increaseStock(@Param("id") Long id, @Param("quantity") Integer quantity);
+    
     boolean existsBySku(String sku);
+    
+    /**
+     * Productos modificados desde una fecha (resincronización del catálogo en memoria)
+     */
+    List<Product> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
+    
+    /**
+     * Huella del catálogo: cambia con cualquier alta, baja o modificación
+     * (toda escritura incrementa version, también los UPDATE de stock)
+     */
+    @Query("SELECT COUNT(p) AS rowCount, COALESCE(SUM(p.version), 0) AS versionSum, " +
+           "COALESCE(MAX(p.id), 0) AS maxId FROM Product p")
+    CatalogFingerprint catalogFingerprint();
+    
+    interface CatalogFingerprint {
+        Long getRowCount();
+        Long getVersionSum();
+        Long getMaxId();
+    }
 }
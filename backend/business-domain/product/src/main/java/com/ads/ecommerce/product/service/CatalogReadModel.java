@@ -0,0 +1,430 @@
+package com.ads.ecommerce.product.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.ads.ecommerce.product.dto.CursorPage;
+import com.ads.ecommerce.product.dto.FacetedProductPage;
+import com.ads.ecommerce.product.dto.ProductFacetRequest;
+import com.ads.ecommerce.product.dto.ProductResponse;
+import com.ads.ecommerce.product.event.ProductChangedEvent;
+import com.ads.ecommerce.product.model.Product;
+import com.ads.ecommerce.product.model.ProductCategory;
+import com.ads.ecommerce.product.repository.ProductRepository;
+import com.ads.ecommerce.product.repository.ProductRepository.CatalogFingerprint;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Catálogo en memoria para los listados (todos, disponibles, por categoría,
+ * stock bajo y rango de precio), la búsqueda por texto y el listado facetado,
+ * servidos sin SQL.
+ * Se carga completo al arrancar y se mantiene con los ProductChangedEvent de
+ * ProductService: tras el commit se releen solo los productos afectados y
+ * después se publica la nueva huella en CatalogVersion.
+ * Las lecturas no bloquean (mapas concurrentes ordenados por ID o por precio);
+ * las escrituras se serializan y una versión menor nunca pisa a una mayor.
+ * Cada check-interval-ms se compara la huella de la tabla con la del modelo para
+ * detectar cambios de otras instancias: se releen los productos modificados
+ * recientemente y, si la huella sigue sin cuadrar (p. ej. borrados), se recarga entero.
+ * Mientras no está cargado, ProductService consulta la base de datos.
+ */
+@Slf4j
+@Component
+public class CatalogReadModel {
+    
+    private final ProductRepository productRepository;
+    private final CatalogVersion catalogVersion;
+    private final int loadBatchSize;
+    private final Duration resyncMargin;
+    private final List<BigDecimal> priceBuckets;
+    private final Object writeLock = new Object();
+    private final Counter resyncCounter;
+    private final Counter reloadCounter;
+    private volatile Views views;
+    private volatile boolean ready;
+    
+    public CatalogReadModel(ProductRepository productRepository,
+                            CatalogVersion catalogVersion,
+                            MeterRegistry meterRegistry,
+                            @Value("${product.catalog.load-batch-size:1000}") int loadBatchSize,
+                            @Value("${product.catalog.resync-margin-seconds:60}") long resyncMarginSeconds,
+                            @Value("${product.catalog.price-buckets:10,25,50,100,250,500,1000}")
+                            List<BigDecimal> priceBuckets) {
+        this.productRepository = productRepository;
+        this.catalogVersion = catalogVersion;
+        this.loadBatchSize = loadBatchSize;
+        this.resyncMargin = Duration.ofSeconds(resyncMarginSeconds);
+        this.priceBuckets = priceBuckets.stream().sorted().toList();
+        this.views = new Views(this.priceBuckets);
+        
+        Gauge.builder("product.catalog.size", this, model -> model.views.byId.size())
+            .description("Productos en el catálogo en memoria")
+            .register(meterRegistry);
+        Gauge.builder("product.catalog.search.terms", this, model -> model.views.searchIndex.termCount())
+            .description("Términos distintos en el índice de búsqueda")
+            .register(meterRegistry);
+        this.resyncCounter = Counter.builder("product.catalog.resyncs")
+            .description("Diferencias con la base de datos corregidas releyendo los productos recientes")
+            .register(meterRegistry);
+        this.reloadCounter = Counter.builder("product.catalog.reloads")
+            .description("Cargas completas del catálogo en memoria")
+            .register(meterRegistry);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("Catalog read model not loaded, serving lists from the database: {}", e.getMessage());
+        }
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    public CursorPage<ProductResponse> page(long afterId, int pageSize) {
+        return firstAfter(views.byId, afterId, pageSize);
+    }
+    
+    public CursorPage<ProductResponse> availablePage(long afterId, int pageSize) {
+        return firstAfter(views.available, afterId, pageSize);
+    }
+    
+    public CursorPage<ProductResponse> categoryPage(ProductCategory category, long afterId, int pageSize) {
+        return firstAfter(views.byCategory.get(category), afterId, pageSize);
+    }
+    
+    public CursorPage<ProductResponse> lowStockPage(long afterId, int pageSize) {
+        return firstAfter(views.lowStock, afterId, pageSize);
+    }
+    
+    /**
+     * Productos con precio entre minPrice y maxPrice (ambos incluidos), por ID como la consulta.
+     * Recorre el tramo del índice de precios y se queda con los pageSize + 1 IDs menores tras el cursor.
+     */
+    public CursorPage<ProductResponse> priceRangePage(BigDecimal minPrice, BigDecimal maxPrice,
+                                                      long afterId, int pageSize) {
+        if (minPrice.compareTo(maxPrice) > 0) {
+            return CursorPage.of(List.of(), pageSize, ProductResponse::getId, Function.identity());
+        }
+        NavigableMap<PriceKey, ProductResponse> range = views.byPrice.subMap(
+            new PriceKey(minPrice, Long.MIN_VALUE), true, new PriceKey(maxPrice, Long.MAX_VALUE), true);
+        
+        Comparator<ProductResponse> byId = Comparator.comparing(ProductResponse::getId);
+        PriorityQueue<ProductResponse> smallest = new PriorityQueue<>(pageSize + 1, byId.reversed());
+        for (ProductResponse product : range.values()) {
+            if (product.getId() <= afterId) {
+                continue;
+            }
+            if (smallest.size() <= pageSize) {
+                smallest.add(product);
+            } else if (product.getId() < smallest.peek().getId()) {
+                smallest.poll();
+                smallest.add(product);
+            }
+        }
+        List<ProductResponse> rows = new ArrayList<>(smallest);
+        rows.sort(byId);
+        return CursorPage.of(rows, pageSize, ProductResponse::getId, Function.identity());
+    }
+    
+    /**
+     * Búsqueda por SKU, nombre y descripción ordenada por relevancia (ver ProductSearchIndex).
+     * Al no ir por ID, el cursor es la posición del siguiente resultado.
+     */
+    public CursorPage<ProductResponse> search(String query, int offset, int pageSize) {
+        Views current = views;
+        List<ProductResponse> rows = current.searchIndex.search(query, offset, pageSize + 1).stream()
+            .map(current.byId::get)
+            .filter(Objects::nonNull)
+            .toList();
+        return CursorPage.ofRanked(rows, offset, pageSize);
+    }
+    
+    /**
+     * Productos que cumplen todos los filtros, por ID, con el total y los recuentos por faceta
+     */
+    public FacetedProductPage facets(ProductFacetRequest request, long afterId, int pageSize) {
+        Views current = views;
+        ProductFacetIndex.FacetResult result = current.facetIndex.query(request, afterId, pageSize);
+        List<ProductResponse> rows = result.ids().stream()
+            .map(current.byId::get)
+            .filter(Objects::nonNull)
+            .toList();
+        CursorPage<ProductResponse> page = CursorPage.of(rows, pageSize, ProductResponse::getId, Function.identity());
+        return new FacetedProductPage(page.getItems(), page.getNextCursor(), page.isHasMore(),
+            result.total(), result.counts());
+    }
+    
+    /**
+     * Aplica los cambios confirmados; en una transacción propia porque la original ya terminó
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!ready) {
+            return;  // Los listados salen de la base de datos, y el ETag de su huella
+        }
+        try {
+            refresh(event.getProductIds());
+        } catch (RuntimeException e) {
+            // La comprobación periódica corregirá la diferencia; el ETag sigue
+            // describiendo lo que se sirve
+            log.warn("Could not refresh products {} in the catalog read model: {}",
+                event.getProductIds(), e.getMessage());
+        }
+        publishVersion();
+    }
+    
+    @Scheduled(fixedDelayString = "${product.catalog.check-interval-ms:5000}",
+               initialDelayString = "${product.catalog.check-interval-ms:5000}")
+    public void checkConsistency() {
+        try {
+            if (!ready) {
+                reload();
+                return;
+            }
+            if (matchesDatabase()) {
+                publishVersion();
+                return;
+            }
+            resyncCounter.increment();
+            boolean changed = resyncRecent();
+            if (!matchesDatabase()) {
+                log.info("Catalog read model still differs from the database after resync, reloading");
+                reload();
+            } else if (changed) {
+                publishVersion();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Catalog consistency check failed: {}", e.getMessage());
+        }
+    }
+    
+    private void refresh(Collection<Long> productIds) {
+        Map<Long, Product> current = productRepository.findAllById(productIds).stream()
+            .collect(Collectors.toMap(Product::getId, Function.identity()));
+        synchronized (writeLock) {
+            Views target = views;
+            for (Long id : productIds) {
+                Product product = current.get(id);
+                if (product != null) {
+                    target.put(product);
+                } else {
+                    target.remove(id);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Relee los productos modificados desde la última actualización conocida menos un margen
+     * (los relojes de las instancias y de la base de datos no coinciden exactamente)
+     */
+    private boolean resyncRecent() {
+        LocalDateTime latest = views.latestUpdate;
+        if (latest == null) {
+            return false;
+        }
+        List<Product> recent = productRepository.findByUpdatedAtGreaterThanEqual(latest.minus(resyncMargin));
+        boolean changed = false;
+        synchronized (writeLock) {
+            Views target = views;
+            for (Product product : recent) {
+                changed |= target.put(product);
+            }
+        }
+        log.debug("Catalog resync re-read {} recently updated products", recent.size());
+        return changed;
+    }
+    
+    private boolean matchesDatabase() {
+        CatalogFingerprint fingerprint = productRepository.catalogFingerprint();
+        if (fingerprint == null) {
+            return true;
+        }
+        synchronized (writeLock) {
+            Views current = views;
+            long maxId = current.byId.isEmpty() ? 0L : current.byId.lastKey();
+            return fingerprint.getRowCount() == current.byId.size()
+                && fingerprint.getVersionSum() == current.versionSum
+                && fingerprint.getMaxId() == maxId;
+        }
+    }
+    
+    /**
+     * ETag compartido: huella de las vistas actuales (la misma que se compara con la tabla)
+     */
+    private void publishVersion() {
+        synchronized (writeLock) {
+            Views current = views;
+            long maxId = current.byId.isEmpty() ? 0L : current.byId.lastKey();
+            catalogVersion.sync(current.byId.size(), current.versionSum, maxId);
+        }
+    }
+    
+    /**
+     * Carga el catálogo por páginas y sustituye las vistas de una vez.
+     * Las escrituras esperan a que termine; las lecturas siguen usando las vistas anteriores.
+     */
+    private void reload() {
+        long start = System.nanoTime();
+        Views loaded = new Views(priceBuckets);
+        synchronized (writeLock) {
+            long afterId = 0L;
+            List<Product> batch;
+            do {
+                batch = productRepository.findPage(afterId, Limit.of(loadBatchSize));
+                batch.forEach(loaded::put);
+                if (!batch.isEmpty()) {
+                    afterId = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == loadBatchSize);
+            views = loaded;
+            ready = true;
+        }
+        reloadCounter.increment();
+        publishVersion();
+        log.info("Catalog read model loaded: {} products in {} ms",
+            loaded.byId.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+    
+    private static CursorPage<ProductResponse> firstAfter(NavigableMap<Long, ProductResponse> view,
+                                                          long afterId, int pageSize) {
+        List<ProductResponse> rows = new ArrayList<>(pageSize + 1);
+        for (ProductResponse product : view.tailMap(afterId, false).values()) {
+            rows.add(product);
+            if (rows.size() > pageSize) {
+                break;
+            }
+        }
+        return CursorPage.of(rows, pageSize, ProductResponse::getId, Function.identity());
+    }
+    
+    /**
+     * Clave del índice de precios: precio y, a igual precio, ID
+     */
+    private record PriceKey(BigDecimal price, long id) implements Comparable<PriceKey> {
+        
+        @Override
+        public int compareTo(PriceKey other) {
+            int byPrice = price.compareTo(other.price);
+            return byPrice != 0 ? byPrice : Long.compare(id, other.id);
+        }
+    }
+    
+    /**
+     * Vistas del catálogo. Se leen sin lock; solo se modifican con writeLock.
+     * Un cambio añade primero la nueva entrada y luego quita la anterior, para que
+     * un producto que sigue en una vista no desaparezca de ella ni un instante.
+     */
+    private static final class Views {
+        private final ConcurrentSkipListMap<Long, ProductResponse> byId = new ConcurrentSkipListMap<>();
+        private final EnumMap<ProductCategory, ConcurrentSkipListMap<Long, ProductResponse>> byCategory =
+            new EnumMap<>(ProductCategory.class);
+        private final ConcurrentSkipListMap<Long, ProductResponse> available = new ConcurrentSkipListMap<>();
+        private final ConcurrentSkipListMap<Long, ProductResponse> lowStock = new ConcurrentSkipListMap<>();
+        private final ConcurrentSkipListMap<PriceKey, ProductResponse> byPrice = new ConcurrentSkipListMap<>();
+        private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+        private final ProductFacetIndex facetIndex;
+        private final Map<Long, Long> versions = new HashMap<>();
+        private long versionSum;
+        private volatile LocalDateTime latestUpdate;
+        
+        private Views(List<BigDecimal> priceBuckets) {
+            this.facetIndex = new ProductFacetIndex(priceBuckets);
+            for (ProductCategory category : ProductCategory.values()) {
+                byCategory.put(category, new ConcurrentSkipListMap<>());
+            }
+        }
+        
+        /**
+         * Devuelve false si ya tenía esa versión o una posterior
+         */
+        private boolean put(Product product) {
+            Long id = product.getId();
+            long version = product.getVersion() != null ? product.getVersion() : 0L;
+            Long previousVersion = versions.get(id);
+            if (previousVersion != null && previousVersion >= version) {
+                return false;
+            }
+            
+            ProductResponse response = ProductService.toResponse(product);
+            ProductResponse previous = byId.put(id, response);
+            byCategory.get(response.getCategory()).put(id, response);
+            if (previous != null && previous.getCategory() != response.getCategory()) {
+                byCategory.get(previous.getCategory()).remove(id);
+            }
+            putOrRemove(available, id, response, response.getAvailable());
+            putOrRemove(lowStock, id, response, response.getLowStock());
+            byPrice.put(new PriceKey(response.getPrice(), id), response);
+            if (previous != null && previous.getPrice().compareTo(response.getPrice()) != 0) {
+                byPrice.remove(new PriceKey(previous.getPrice(), id));
+            }
+            searchIndex.put(response);
+            facetIndex.put(response);
+            
+            versions.put(id, version);
+            versionSum += version - (previousVersion != null ? previousVersion : 0L);
+            if (product.getUpdatedAt() != null
+                    && (latestUpdate == null || product.getUpdatedAt().isAfter(latestUpdate))) {
+                latestUpdate = product.getUpdatedAt();
+            }
+            return true;
+        }
+        
+        private void remove(Long id) {
+            ProductResponse previous = byId.remove(id);
+            if (previous == null) {
+                return;
+            }
+            byCategory.get(previous.getCategory()).remove(id);
+            available.remove(id);
+            lowStock.remove(id);
+            byPrice.remove(new PriceKey(previous.getPrice(), id));
+            searchIndex.remove(id);
+            facetIndex.remove(id);
+            versionSum -= versions.remove(id);
+        }
+        
+        private static void putOrRemove(ConcurrentSkipListMap<Long, ProductResponse> view, Long id,
+                                        ProductResponse response, Boolean included) {
+            if (Boolean.TRUE.equals(included)) {
+                view.put(id, response);
+            } else {
+                view.remove(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.ads.ecommerce.product.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.springframework.stereotype.Component;
+
+import com.ads.ecommerce.product.repository.ProductRepository;
+import com.ads.ecommerce.product.repository.ProductRepository.CatalogFingerprint;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Versión del catálogo, base de los ETag de los listados: un hash de la huella del
+ * catálogo (filas, suma de versiones e ID máximo). Todas las instancias con los
+ * mismos datos dan el mismo ETag, y un cliente balanceado entre ellas sigue
+ * recibiendo 304.
+ * Con el catálogo en memoria cargado, la huella es la de sus vistas (lo que se
+ * sirve); CatalogReadModel la publica después de cambiarlas, para que un ETag
+ * nuevo nunca acompañe datos viejos. Mientras no está cargado los listados salen
+ * de la base de datos y la huella se lee de la tabla antes de consultar.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogVersion {
+    
+    private final ProductRepository productRepository;
+    private volatile String etag;
+    
+    /**
+     * ETag débil: la misma versión vale para JSON, Smile y gzip
+     */
+    public String etag() {
+        String current = etag;
+        if (current != null) {
+            return current;
+        }
+        CatalogFingerprint fingerprint = productRepository.catalogFingerprint();
+        return tag(fingerprint.getRowCount(), fingerprint.getVersionSum(), fingerprint.getMaxId());
+    }
+    
+    /**
+     * Contenido del catálogo en memoria con esta huella
+     */
+    public void sync(long rowCount, long versionSum, long maxId) {
+        String tag = tag(rowCount, versionSum, maxId);
+        if (!tag.equals(etag)) {
+            etag = tag;
+            log.debug("Catalog version {}:{}:{}", rowCount, versionSum, maxId);
+        }
+    }
+    
+    private static String tag(long rowCount, long versionSum, long maxId) {
+        String fingerprint = rowCount + ":" + versionSum + ":" + maxId;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fingerprint.getBytes(StandardCharsets.UTF_8));
+            return "W/\"catalog-" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
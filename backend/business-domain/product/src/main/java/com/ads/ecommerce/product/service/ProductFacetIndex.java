@@ -0,0 +1,263 @@
+package com.ads.ecommerce.product.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.ads.ecommerce.product.dto.ProductFacetCounts;
+import com.ads.ecommerce.product.dto.ProductFacetRequest;
+import com.ads.ecommerce.product.dto.ProductResponse;
+import com.ads.ecommerce.product.model.ProductCategory;
+import com.ads.ecommerce.product.model.ProductStatus;
+
+/**
+ * Índice de bitmaps para el listado facetado: un BitSet, indexado por ID de producto,
+ * por categoría, estado, tramo de precio y para activos, disponibles y stock bajo.
+ * Combinar filtros es intersecar bitmaps en memoria; los recuentos por faceta son
+ * cardinalidades de esas intersecciones.
+ * Los tramos de precio los definen sus límites (p. ej. 10, 25, 50 dan 0-10, 10-25,
+ * 25-50 y 50+). Un rango de precio pedido usa los tramos que cubre enteros y solo
+ * comprueba el precio de los productos de los tramos de los extremos.
+ * Los IDs son autoincrementales y densos, así que un BitSet por valor ocupa
+ * alrededor de 125 KB por cada millón de IDs.
+ * BitSet no admite lecturas durante una escritura: las consultas toman el lock de
+ * lectura (y pueden ir en paralelo) y los cambios el de escritura.
+ */
+public class ProductFacetIndex {
+    
+    private final List<BigDecimal> priceBounds;
+    private final List<String> priceLabels;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet all = new BitSet();
+    private final EnumMap<ProductCategory, BitSet> categories = new EnumMap<>(ProductCategory.class);
+    private final EnumMap<ProductStatus, BitSet> statuses = new EnumMap<>(ProductStatus.class);
+    private final List<BitSet> priceRanges = new ArrayList<>();
+    private final BitSet active = new BitSet();
+    private final BitSet available = new BitSet();
+    private final BitSet lowStock = new BitSet();
+    private final Map<Integer, BigDecimal> prices = new HashMap<>();
+    
+    /**
+     * @param priceBounds límites de los tramos de precio, en orden ascendente
+     */
+    public ProductFacetIndex(List<BigDecimal> priceBounds) {
+        this.priceBounds = List.copyOf(priceBounds);
+        this.priceLabels = new ArrayList<>();
+        BigDecimal lower = BigDecimal.ZERO;
+        for (BigDecimal upper : this.priceBounds) {
+            priceLabels.add(lower.toPlainString() + "-" + upper.toPlainString());
+            lower = upper;
+        }
+        priceLabels.add(lower.toPlainString() + "+");
+        
+        for (ProductCategory category : ProductCategory.values()) {
+            categories.put(category, new BitSet());
+        }
+        for (ProductStatus status : ProductStatus.values()) {
+            statuses.put(status, new BitSet());
+        }
+        for (int i = 0; i < priceLabels.size(); i++) {
+            priceRanges.add(new BitSet());
+        }
+    }
+    
+    public void put(ProductResponse product) {
+        int id = Math.toIntExact(product.getId());
+        lock.writeLock().lock();
+        try {
+            clear(id);
+            all.set(id);
+            categories.get(product.getCategory()).set(id);
+            statuses.get(product.getStatus()).set(id);
+            priceRanges.get(priceRange(product.getPrice())).set(id);
+            active.set(id, Boolean.TRUE.equals(product.getActive()));
+            available.set(id, Boolean.TRUE.equals(product.getAvailable()));
+            lowStock.set(id, Boolean.TRUE.equals(product.getLowStock()));
+            prices.put(id, product.getPrice());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            clear(Math.toIntExact(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * IDs de la página (los pageSize + 1 primeros tras afterId, por ID), total y recuentos por faceta
+     */
+    public FacetResult query(ProductFacetRequest request, long afterId, int pageSize) {
+        lock.readLock().lock();
+        try {
+            // Un bitmap por filtro pedido, null si no se filtra por él
+            BitSet[] filters = {
+                union(categories, request.getCategories()),
+                union(statuses, request.getStatuses()),
+                flag(active, request.getActive()),
+                flag(available, request.getAvailable()),
+                flag(lowStock, request.getLowStock()),
+                priceFilter(request.getMinPrice(), request.getMaxPrice())
+            };
+            BitSet matches = intersect(new BitSet(all.length()), filters, -1);
+            
+            List<Long> ids = new ArrayList<>(pageSize + 1);
+            if (afterId < Integer.MAX_VALUE) {
+                for (int id = matches.nextSetBit((int) afterId + 1); id >= 0 && ids.size() <= pageSize;
+                        id = matches.nextSetBit(id + 1)) {
+                    ids.add((long) id);
+                }
+            }
+            
+            // Dos bitmaps de trabajo para todos los recuentos: base se rellena de nuevo
+            // para cada faceta y scratch para cada intersección que se cuenta
+            BitSet base = new BitSet(all.length());
+            BitSet scratch = new BitSet(all.length());
+            Map<ProductCategory, Integer> categoryCounts = counts(categories, intersect(base, filters, 0), scratch);
+            Map<ProductStatus, Integer> statusCounts = counts(statuses, intersect(base, filters, 1), scratch);
+            Map<String, Integer> priceCounts = priceCounts(intersect(base, filters, 5), scratch);
+            int activeCount = andCardinality(intersect(base, filters, 2), active, scratch);
+            int availableCount = andCardinality(intersect(base, filters, 3), available, scratch);
+            int lowStockCount = andCardinality(intersect(base, filters, 4), lowStock, scratch);
+            
+            ProductFacetCounts counts = new ProductFacetCounts(
+                categoryCounts, statusCounts, priceCounts, activeCount, availableCount, lowStockCount);
+            return new FacetResult(ids, matches.cardinality(), counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public record FacetResult(List<Long> ids, int total, ProductFacetCounts counts) {
+    }
+    
+    private void clear(int id) {
+        if (!all.get(id)) {
+            return;
+        }
+        all.clear(id);
+        categories.values().forEach(bits -> bits.clear(id));
+        statuses.values().forEach(bits -> bits.clear(id));
+        priceRanges.forEach(bits -> bits.clear(id));
+        active.clear(id);
+        available.clear(id);
+        lowStock.clear(id);
+        prices.remove(id);
+    }
+    
+    /**
+     * Deja en target todos los productos que cumplen los filtros salvo el de la posición skip (-1: todos)
+     */
+    private BitSet intersect(BitSet target, BitSet[] filters, int skip) {
+        target.clear();
+        target.or(all);
+        for (int i = 0; i < filters.length; i++) {
+            if (i != skip && filters[i] != null) {
+                target.and(filters[i]);
+            }
+        }
+        return target;
+    }
+    
+    private static <E extends Enum<E>> BitSet union(EnumMap<E, BitSet> bitmaps, List<E> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        BitSet result = new BitSet();
+        values.forEach(value -> result.or(bitmaps.get(value)));
+        return result;
+    }
+    
+    private BitSet flag(BitSet bitmap, Boolean value) {
+        if (value == null) {
+            return null;
+        }
+        if (value) {
+            return bitmap;
+        }
+        BitSet result = (BitSet) all.clone();
+        result.andNot(bitmap);
+        return result;
+    }
+    
+    /**
+     * Tramos contenidos en el rango enteros, más los productos de los tramos de los extremos
+     * cuyo precio está dentro (mínimo y máximo incluidos, como BETWEEN)
+     */
+    private BitSet priceFilter(BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice == null && maxPrice == null) {
+            return null;
+        }
+        BitSet result = new BitSet();
+        for (int i = 0; i < priceRanges.size(); i++) {
+            BigDecimal lower = i == 0 ? null : priceBounds.get(i - 1);
+            BigDecimal upper = i < priceBounds.size() ? priceBounds.get(i) : null;
+            boolean overlaps = (minPrice == null || upper == null || upper.compareTo(minPrice) > 0)
+                && (maxPrice == null || lower == null || lower.compareTo(maxPrice) <= 0);
+            if (!overlaps) {
+                continue;
+            }
+            boolean covered = (minPrice == null || (lower != null && lower.compareTo(minPrice) >= 0))
+                && (maxPrice == null || (upper != null && upper.compareTo(maxPrice) <= 0));
+            BitSet range = priceRanges.get(i);
+            if (covered) {
+                result.or(range);
+            } else {
+                for (int id = range.nextSetBit(0); id >= 0; id = range.nextSetBit(id + 1)) {
+                    BigDecimal price = prices.get(id);
+                    if ((minPrice == null || price.compareTo(minPrice) >= 0)
+                            && (maxPrice == null || price.compareTo(maxPrice) <= 0)) {
+                        result.set(id);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+    
+    private int priceRange(BigDecimal price) {
+        for (int i = 0; i < priceBounds.size(); i++) {
+            if (price.compareTo(priceBounds.get(i)) < 0) {
+                return i;
+            }
+        }
+        return priceBounds.size();
+    }
+    
+    private static <E extends Enum<E>> Map<E, Integer> counts(EnumMap<E, BitSet> bitmaps, BitSet base,
+                                                              BitSet scratch) {
+        Map<E, Integer> counts = new LinkedHashMap<>();
+        bitmaps.forEach((value, bits) -> counts.put(value, andCardinality(base, bits, scratch)));
+        return counts;
+    }
+    
+    private Map<String, Integer> priceCounts(BitSet base, BitSet scratch) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < priceRanges.size(); i++) {
+            counts.put(priceLabels.get(i), andCardinality(base, priceRanges.get(i), scratch));
+        }
+        return counts;
+    }
+    
+    /**
+     * Cardinalidad de base AND bits sin copiar ninguno de los dos: clear conserva el
+     * array de palabras de scratch, así que tras el primer recuento no se reserva memoria
+     */
+    private static int andCardinality(BitSet base, BitSet bits, BitSet scratch) {
+        scratch.clear();
+        scratch.or(bits);
+        scratch.and(base);
+        return scratch.cardinality();
+    }
+}
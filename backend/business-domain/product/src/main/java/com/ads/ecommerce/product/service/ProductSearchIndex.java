@@ -0,0 +1,251 @@
+package com.ads.ecommerce.product.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import com.ads.ecommerce.product.dto.ProductResponse;
+
+/**
+ * Índice invertido en memoria sobre SKU, nombre y descripción para la búsqueda del catálogo.
+ * El texto se normaliza sin tildes ni mayúsculas ("Canción" y "CANCION" son el mismo término)
+ * y cada término guarda los productos que lo contienen y en qué campos.
+ * Cada palabra de la consulta casa con los términos que empiezan por ella (búsqueda
+ * mientras se escribe) y un producto tiene que casar con todas.
+ * Relevancia: SKU > nombre > descripción; el término completo vale el doble que un prefijo.
+ * Se lee sin locks; las escrituras tienen que estar serializadas (en CatalogReadModel,
+ * con su lock de escritura).
+ */
+public class ProductSearchIndex {
+    
+    // Pesos por campo; son bits distintos, así que un término en varios campos suma los pesos
+    private static final int SKU = 8;
+    private static final int NAME = 4;
+    private static final int DESCRIPTION = 1;
+    
+    // El SKU exacto va siempre primero
+    private static final int EXACT_SKU = Integer.MAX_VALUE;
+    
+    // Con una sola letra solo cuenta el término exacto: como prefijo casaría con medio catálogo
+    private static final int MIN_PREFIX_LENGTH = 2;
+    
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    
+    private final ConcurrentSkipListMap<String, ConcurrentHashMap<Long, Integer>> postings =
+        new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Long> skus = new ConcurrentHashMap<>();
+    private final Map<Long, Map<String, Integer>> termsById = new HashMap<>();
+    private final Map<Long, String> skuById = new HashMap<>();
+    
+    /**
+     * Minúsculas, sin tildes ni diéresis (la ñ queda como n) y separadores reducidos a un espacio
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String withoutMarks = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(withoutMarks.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+    
+    public static List<String> tokens(String text) {
+        String folded = fold(text);
+        return folded.isEmpty() ? List.of() : Arrays.asList(folded.split(" "));
+    }
+    
+    /**
+     * Indexa o reindexa el producto. Los términos nuevos se añaden antes de quitar
+     * los que ya no tiene, para que una búsqueda concurrente no lo pierda.
+     */
+    public void put(ProductResponse product) {
+        Long id = product.getId();
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, product.getSku(), SKU);
+        addTerms(terms, product.getName(), NAME);
+        addTerms(terms, product.getDescription(), DESCRIPTION);
+        
+        terms.forEach((term, fields) ->
+            postings.computeIfAbsent(term, key -> new ConcurrentHashMap<>()).put(id, fields));
+        Map<String, Integer> previous = termsById.put(id, terms);
+        if (previous != null) {
+            previous.keySet().stream()
+                .filter(term -> !terms.containsKey(term))
+                .forEach(term -> removePosting(term, id));
+        }
+        
+        // El SKU completo sin separadores: "ABC-123" se encuentra también como "abc123"
+        String sku = compact(product.getSku());
+        skus.put(sku, id);
+        String previousSku = skuById.put(id, sku);
+        if (previousSku != null && !previousSku.equals(sku)) {
+            skus.remove(previousSku, id);
+        }
+    }
+    
+    public void remove(Long id) {
+        Map<String, Integer> previous = termsById.remove(id);
+        if (previous != null) {
+            previous.keySet().forEach(term -> removePosting(term, id));
+        }
+        String previousSku = skuById.remove(id);
+        if (previousSku != null) {
+            skus.remove(previousSku, id);
+        }
+    }
+    
+    /**
+     * IDs de los productos que casan con todas las palabras de la consulta, por relevancia
+     * (y por ID a igual relevancia), a partir de la posición offset y como mucho limit
+     */
+    public List<Long> search(String query, int offset, int limit) {
+        Map<Long, Integer> scores = matchAllWords(query);
+        Long skuMatch = skus.get(compact(query));
+        if (skuMatch != null) {
+            scores.put(skuMatch, EXACT_SKU);
+        }
+        return rank(scores, offset + limit).stream()
+            .skip(offset)
+            .toList();
+    }
+    
+    public int termCount() {
+        return postings.size();
+    }
+    
+    /**
+     * Puntuación de los productos que casan con todas las palabras. Se empieza por la
+     * palabra más selectiva; las demás solo se comprueban sobre sus candidatos.
+     */
+    private Map<Long, Integer> matchAllWords(String query) {
+        List<WordMatch> words = tokens(query).stream()
+            .distinct()
+            .map(this::terms)
+            .sorted(Comparator.comparingLong(WordMatch::postings))
+            .toList();
+        
+        Map<Long, Integer> scores = new HashMap<>();
+        for (int i = 0; i < words.size(); i++) {
+            scores = i == 0 ? words.get(i).score() : words.get(i).scoreWithin(scores);
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        return scores;
+    }
+    
+    /**
+     * Términos que empiezan por la palabra (o solo el exacto si es de una letra)
+     */
+    private WordMatch terms(String word) {
+        NavigableMap<String, ConcurrentHashMap<Long, Integer>> terms = word.length() < MIN_PREFIX_LENGTH
+            ? postings.subMap(word, true, word, true)
+            : postings.subMap(word, true, word + Character.MAX_VALUE, false);
+        long total = 0;
+        for (ConcurrentHashMap<Long, Integer> products : terms.values()) {
+            total += products.size();
+        }
+        return new WordMatch(word, terms, total);
+    }
+    
+    /**
+     * Los wanted primeros IDs por puntuación descendente e ID ascendente. Las puntuaciones
+     * son enteros pequeños: se agrupan por puntuación y solo se ordenan los grupos necesarios.
+     */
+    private static List<Long> rank(Map<Long, Integer> scores, int wanted) {
+        TreeMap<Integer, List<Long>> byScore = new TreeMap<>(Comparator.reverseOrder());
+        scores.forEach((id, score) -> byScore.computeIfAbsent(score, key -> new ArrayList<>()).add(id));
+        
+        List<Long> ranked = new ArrayList<>(Math.min(wanted, scores.size()));
+        for (List<Long> ids : byScore.values()) {
+            long[] sorted = ids.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            for (int i = 0; i < sorted.length && ranked.size() < wanted; i++) {
+                ranked.add(sorted[i]);
+            }
+            if (ranked.size() >= wanted) {
+                break;
+            }
+        }
+        return ranked;
+    }
+    
+    /**
+     * Términos de una palabra de la consulta y el total de entradas que suman (su coste)
+     */
+    private record WordMatch(String word, NavigableMap<String, ConcurrentHashMap<Long, Integer>> terms,
+                             long postings) {
+        
+        /**
+         * Mejor puntuación de cada producto entre todos los términos de la palabra
+         */
+        private Map<Long, Integer> score() {
+            Map<Long, Integer> scores = new HashMap<>();
+            terms.forEach((term, products) -> {
+                int factor = factor(term);
+                products.forEach((id, fields) -> scores.merge(id, fields * factor, Math::max));
+            });
+            return scores;
+        }
+        
+        /**
+         * Como score(), pero solo para los candidatos, sumando su puntuación previa.
+         * Cada término se recorre por el lado más pequeño: sus productos o los candidatos.
+         */
+        private Map<Long, Integer> scoreWithin(Map<Long, Integer> candidates) {
+            Map<Long, Integer> scores = new HashMap<>();
+            terms.forEach((term, products) -> {
+                int factor = factor(term);
+                if (products.size() > candidates.size()) {
+                    candidates.keySet().forEach(id -> {
+                        Integer fields = products.get(id);
+                        if (fields != null) {
+                            scores.merge(id, fields * factor, Math::max);
+                        }
+                    });
+                } else {
+                    products.forEach((id, fields) -> {
+                        if (candidates.containsKey(id)) {
+                            scores.merge(id, fields * factor, Math::max);
+                        }
+                    });
+                }
+            });
+            scores.replaceAll((id, score) -> score + candidates.get(id));
+            return scores;
+        }
+        
+        // El término completo vale el doble que un término que solo empieza por la palabra
+        private int factor(String term) {
+            return term.length() == word.length() ? 2 : 1;
+        }
+    }
+    
+    private static String compact(String text) {
+        return fold(text).replace(" ", "");
+    }
+    
+    private static void addTerms(Map<String, Integer> terms, String text, int field) {
+        tokens(text).forEach(term -> terms.merge(term, field, (fields, added) -> fields | added));
+    }
+    
+    private void removePosting(String term, Long id) {
+        ConcurrentHashMap<Long, Integer> products = postings.get(term);
+        if (products != null) {
+            products.remove(id);
+            if (products.isEmpty()) {
+                postings.remove(term, products);
+            }
+        }
+    }
+}
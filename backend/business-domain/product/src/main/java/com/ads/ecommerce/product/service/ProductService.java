@@ -1,19 +1,36 @@
 package com.ads.ecommerce.product.service;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.ads.ecommerce.product.dto.CursorPage;
+import com.ads.ecommerce.product.dto.FacetedProductPage;
+import com.ads.ecommerce.product.dto.ProductFacetRequest;
 import com.ads.ecommerce.product.dto.ProductRequest;
 import com.ads.ecommerce.product.dto.ProductResponse;
+import com.ads.ecommerce.product.dto.ProductSummary;
+import com.ads.ecommerce.product.dto.StockBatchRequest;
 import com.ads.ecommerce.product.dto.StockUpdateRequest;
+import com.ads.ecommerce.product.event.ProductChangedEvent;
+import com.ads.ecommerce.product.exception.CatalogUnavailableException;
 import com.ads.ecommerce.product.exception.InsufficientStockException;
 import com.ads.ecommerce.product.exception.ProductNotFoundException;
+import com.ads.ecommerce.product.model.ProcessedStockBatch;
 import com.ads.ecommerce.product.model.Product;
 import com.ads.ecommerce.product.model.ProductCategory;
+import com.ads.ecommerce.product.repository.ProcessedStockBatchRepository;
 import com.ads.ecommerce.product.repository.ProductRepository;
 
 import lombok.RequiredArgsConstructor;
@@ -25,6 +42,11 @@ import lombok.extern.slf4j.Slf4j;
 public class ProductService {
     
     private final ProductRepository productRepository;
+    private final OptimisticRetryExecutor retryExecutor;
+    private final ProcessedStockBatchRepository processedStockBatchRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogReadModel catalogReadModel;
+    private final ReadOnlyTransactions readOnly;
     
     @Transactional
     public ProductResponse createProduct(ProductRequest request) {
@@ -48,6 +70,7 @@ public class ProductService {
         
         Product saved = productRepository.save(product);
         log.info("Product created with ID: {}", saved.getId());
+        publishChanged(Set.of(saved.getId()));
         
         return toResponse(saved);
     }
@@ -68,114 +91,251 @@ public class ProductService {
         return toResponse(product);
     }
     
+    /**
+     * Obtiene varios productos por ID en una sola consulta
+     */
     @Transactional(readOnly = true)
-    public List<ProductResponse> getAllProducts() {
-        return productRepository.findAll().stream()
-            .map(this::toResponse)
+    public List<ProductResponse> getProductsByIds(List<Long> ids) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        return productRepository.findAllById(distinctIds).stream()
+            .map(ProductService::toResponse)
             .collect(Collectors.toList());
     }
     
+    /**
+     * Obtiene varios productos por SKU en una sola consulta
+     */
     @Transactional(readOnly = true)
-    public List<ProductResponse> getAvailableProducts() {
-        return productRepository.findAvailableProducts().stream()
-            .map(this::toResponse)
+    public List<ProductResponse> getProductsBySkus(List<String> skus) {
+        Set<String> distinctSkus = skus.stream()
+            .map(String::toUpperCase)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        return productRepository.findBySkuIn(distinctSkus).stream()
+            .map(ProductService::toResponse)
             .collect(Collectors.toList());
     }
     
-    @Transactional(readOnly = true)
-    public List<ProductResponse> getProductsByCategory(ProductCategory category) {
-        return productRepository.findByCategory(category).stream()
-            .map(this::toResponse)
-            .collect(Collectors.toList());
+    public CursorPage<ProductResponse> getAllProducts(String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        if (catalogReadModel.isReady()) {
+            return catalogReadModel.page(CursorPage.decode(cursor), pageSize);
+        }
+        return readOnly.execute(() -> toPage(
+            productRepository.findPage(CursorPage.decode(cursor), Limit.of(pageSize + 1)), pageSize));
     }
     
-    @Transactional(readOnly = true)
-    public List<ProductResponse> searchProducts(String name) {
-        return productRepository.searchByName(name).stream()
-            .map(this::toResponse)
-            .collect(Collectors.toList());
+    public CursorPage<ProductResponse> getAvailableProducts(String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        if (catalogReadModel.isReady()) {
+            return catalogReadModel.availablePage(CursorPage.decode(cursor), pageSize);
+        }
+        return readOnly.execute(() -> toPage(
+            productRepository.findAvailablePage(CursorPage.decode(cursor), Limit.of(pageSize + 1)), pageSize));
     }
     
-    @Transactional(readOnly = true)
-    public List<ProductResponse> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
-        return productRepository.findByPriceRange(minPrice, maxPrice).stream()
-            .map(this::toResponse)
-            .collect(Collectors.toList());
+    public CursorPage<ProductResponse> getProductsByCategory(ProductCategory category, String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        if (catalogReadModel.isReady()) {
+            return catalogReadModel.categoryPage(category, CursorPage.decode(cursor), pageSize);
+        }
+        return readOnly.execute(() -> toPage(productRepository.findPageByCategory(
+            category, CursorPage.decode(cursor), Limit.of(pageSize + 1)), pageSize));
     }
     
-    @Transactional(readOnly = true)
-    public List<ProductResponse> getLowStockProducts() {
-        return productRepository.findLowStockProducts().stream()
-            .map(this::toResponse)
-            .collect(Collectors.toList());
+    /**
+     * Con el catálogo en memoria cargado: búsqueda por SKU, nombre y descripción, sin
+     * distinguir tildes ni mayúsculas, por prefijo y ordenada por relevancia.
+     * Mientras tanto: LIKE sobre el nombre en la base de datos, por ID.
+     */
+    public CursorPage<ProductResponse> searchProducts(String name, String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        if (catalogReadModel.isReady()) {
+            return catalogReadModel.search(name, CursorPage.decodeOffset(cursor), pageSize);
+        }
+        return readOnly.execute(() -> toPage(productRepository.searchPageByName(
+            name, CursorPage.decode(cursor), Limit.of(pageSize + 1)), pageSize));
+    }
+    
+    public CursorPage<ProductResponse> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice,
+                                                               String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        if (catalogReadModel.isReady()) {
+            return catalogReadModel.priceRangePage(minPrice, maxPrice, CursorPage.decode(cursor), pageSize);
+        }
+        return readOnly.execute(() -> toPage(productRepository.findPageByPriceRange(
+            minPrice, maxPrice, CursorPage.decode(cursor), Limit.of(pageSize + 1)), pageSize));
+    }
+    
+    public CursorPage<ProductResponse> getLowStockProducts(String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        if (catalogReadModel.isReady()) {
+            return catalogReadModel.lowStockPage(CursorPage.decode(cursor), pageSize);
+        }
+        return readOnly.execute(() -> toPage(
+            productRepository.findLowStockPage(CursorPage.decode(cursor), Limit.of(pageSize + 1)), pageSize));
+    }
+    
+    // Vista resumida (?view=summary): del catálogo en memoria o, mientras se carga,
+    // con las consultas de resumen que leen solo las columnas del listado.
+    // Como los listados completos, no abren transacción salvo para la consulta de respaldo
+    
+    public CursorPage<ProductSummary> getProductSummaries(String cursor, Integer size) {
+        return summaries(cursor, size, catalogReadModel::page, productRepository::findSummaryPage);
+    }
+    
+    public CursorPage<ProductSummary> getAvailableProductSummaries(String cursor, Integer size) {
+        return summaries(cursor, size, catalogReadModel::availablePage, productRepository::findAvailableSummaryPage);
+    }
+    
+    public CursorPage<ProductSummary> getProductSummariesByCategory(ProductCategory category,
+                                                                    String cursor, Integer size) {
+        return summaries(cursor, size,
+            (afterId, pageSize) -> catalogReadModel.categoryPage(category, afterId, pageSize),
+            (afterId, limit) -> productRepository.findSummaryPageByCategory(category, afterId, limit));
+    }
+    
+    public CursorPage<ProductSummary> searchProductSummaries(String name, String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        if (catalogReadModel.isReady()) {
+            return toSummaryPage(catalogReadModel.search(name, CursorPage.decodeOffset(cursor), pageSize));
+        }
+        return readOnly.execute(() -> CursorPage.of(productRepository.searchSummaryPageByName(
+            name, CursorPage.decode(cursor), Limit.of(pageSize + 1)), pageSize, ProductSummary::id, Function.identity()));
+    }
+    
+    public CursorPage<ProductSummary> getProductSummariesByPriceRange(BigDecimal minPrice, BigDecimal maxPrice,
+                                                                      String cursor, Integer size) {
+        return summaries(cursor, size,
+            (afterId, pageSize) -> catalogReadModel.priceRangePage(minPrice, maxPrice, afterId, pageSize),
+            (afterId, limit) -> productRepository.findSummaryPageByPriceRange(minPrice, maxPrice, afterId, limit));
+    }
+    
+    public CursorPage<ProductSummary> getLowStockProductSummaries(String cursor, Integer size) {
+        return summaries(cursor, size, catalogReadModel::lowStockPage, productRepository::findLowStockSummaryPage);
+    }
+    
+    /**
+     * Listado con filtros combinados y recuentos por faceta. Solo se sirve desde el
+     * catálogo en memoria: mientras se carga, 503 para que el cliente reintente.
+     */
+    public FacetedProductPage getFacetedProducts(ProductFacetRequest request, String cursor, Integer size) {
+        int pageSize = CursorPage.clampSize(size);
+        if (!catalogReadModel.isReady()) {
+            throw new CatalogUnavailableException("El catálogo se está cargando, reintente en unos segundos");
+        }
+        return catalogReadModel.facets(request, CursorPage.decode(cursor), pageSize);
     }
     
-    @Transactional
     public ProductResponse updateProduct(Long id, ProductRequest request) {
-        Product product = productRepository.findById(id)
-            .orElseThrow(() -> new ProductNotFoundException("Producto no encontrado: " + id));
-        
-        product.setName(request.getName());
-        product.setDescription(request.getDescription());
-        product.setPrice(request.getPrice());
-        product.setCategory(request.getCategory());
-        product.setImageUrl(request.getImageUrl());
-        
-        Product updated = productRepository.save(product);
-        log.info("Product updated: {}", updated.getId());
-        
-        return toResponse(updated);
+        return retryExecutor.execute(() -> {
+            Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ProductNotFoundException("Producto no encontrado: " + id));
+            
+            product.setName(request.getName());
+            product.setDescription(request.getDescription());
+            product.setPrice(request.getPrice());
+            product.setCategory(request.getCategory());
+            product.setImageUrl(request.getImageUrl());
+            
+            Product updated = productRepository.saveAndFlush(product);
+            log.info("Product updated: {}", updated.getId());
+            publishChanged(Set.of(id));
+            
+            return toResponse(updated);
+        });
     }
     
     @Transactional
     public ProductResponse updateStock(Long id, StockUpdateRequest request) {
-        Product product = productRepository.findById(id)
-            .orElseThrow(() -> new ProductNotFoundException("Producto no encontrado: " + id));
+        applyStockDelta(id, request.getOperation(), request.getQuantity());
+        publishChanged(Set.of(id));
         
-        try {
-            if (request.getOperation() == StockUpdateRequest.StockOperation.ADD) {
-                product.increaseStock(request.getQuantity());
-                log.info("Stock increased for product {}: +{}", id, request.getQuantity());
-            } else {
-                product.decreaseStock(request.getQuantity());
-                log.info("Stock decreased for product {}: -{}", id, request.getQuantity());
-            }
-            
-            Product updated = productRepository.save(product);
-            return toResponse(updated);
-            
-        } catch (IllegalStateException e) {
-            throw new InsufficientStockException(e.getMessage());
+        if (request.getOperation() == StockUpdateRequest.StockOperation.ADD) {
+            log.info("Stock increased for product {}: +{}", id, request.getQuantity());
+        } else {
+            log.info("Stock decreased for product {}: -{}", id, request.getQuantity());
         }
+        
+        return getProduct(id);
     }
     
+    /**
+     * Aplica todos los movimientos de stock de una orden en una sola transacción.
+     * Los movimientos se consolidan por producto y se aplican en orden de ID;
+     * si alguno falla no se aplica ninguno.
+     * Si trae requestId, un lote ya aplicado con ese ID no se vuelve a aplicar.
+     */
     @Transactional
-    public void deactivateProduct(Long id) {
-        Product product = productRepository.findById(id)
-            .orElseThrow(() -> new ProductNotFoundException("Producto no encontrado: " + id));
+    public List<ProductResponse> updateStockBatch(StockBatchRequest request) {
+        if (request.getRequestId() != null) {
+            if (processedStockBatchRepository.existsById(request.getRequestId())) {
+                log.info("Stock batch {} already applied, skipping", request.getRequestId());
+                return productRepository.findAllById(request.getItems().stream()
+                        .map(StockBatchRequest.StockBatchItem::getProductId)
+                        .collect(Collectors.toSet())).stream()
+                    .map(ProductService::toResponse)
+                    .collect(Collectors.toList());
+            }
+            // Se inserta antes de aplicar: un duplicado concurrente choca con la PK y no aplica nada
+            processedStockBatchRepository.saveAndFlush(new ProcessedStockBatch(request.getRequestId()));
+        }
+        
+        Map<Long, Integer> deltas = new TreeMap<>();
+        for (StockBatchRequest.StockBatchItem item : request.getItems()) {
+            int delta = item.getOperation() == StockUpdateRequest.StockOperation.ADD
+                ? item.getQuantity()
+                : -item.getQuantity();
+            deltas.merge(item.getProductId(), delta, Integer::sum);
+        }
         
-        product.deactivate();
-        productRepository.save(product);
+        deltas.forEach((productId, delta) -> {
+            if (delta > 0) {
+                applyStockDelta(productId, StockUpdateRequest.StockOperation.ADD, delta);
+            } else if (delta < 0) {
+                applyStockDelta(productId, StockUpdateRequest.StockOperation.SUBTRACT, -delta);
+            }
+        });
+        log.info("Stock batch applied to {} products", deltas.size());
+        publishChanged(deltas.keySet());
+        
+        return productRepository.findAllById(deltas.keySet()).stream()
+            .map(ProductService::toResponse)
+            .collect(Collectors.toList());
+    }
+    
+    public void deactivateProduct(Long id) {
+        retryExecutor.run(() -> {
+            Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ProductNotFoundException("Producto no encontrado: " + id));
+            
+            product.deactivate();
+            productRepository.saveAndFlush(product);
+            publishChanged(Set.of(id));
+        });
         log.info("Product deactivated: {}", id);
     }
     
-    @Transactional
     public void activateProduct(Long id) {
-        Product product = productRepository.findById(id)
-            .orElseThrow(() -> new ProductNotFoundException("Producto no encontrado: " + id));
-        
-        product.activate();
-        productRepository.save(product);
+        retryExecutor.run(() -> {
+            Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ProductNotFoundException("Producto no encontrado: " + id));
+            
+            product.activate();
+            productRepository.saveAndFlush(product);
+            publishChanged(Set.of(id));
+        });
         log.info("Product activated: {}", id);
     }
     
-    @Transactional
     public void discontinueProduct(Long id) {
-        Product product = productRepository.findById(id)
-            .orElseThrow(() -> new ProductNotFoundException("Producto no encontrado: " + id));
-        
-        product.discontinue();
-        productRepository.save(product);
+        retryExecutor.run(() -> {
+            Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ProductNotFoundException("Producto no encontrado: " + id));
+            
+            product.discontinue();
+            productRepository.saveAndFlush(product);
+            publishChanged(Set.of(id));
+        });
         log.info("Product discontinued: {}", id);
     }
     
@@ -185,11 +345,65 @@ public class ProductService {
             throw new ProductNotFoundException("Producto no encontrado: " + id);
         }
         productRepository.deleteById(id);
+        publishChanged(Set.of(id));
         log.info("Product deleted: {}", id);
     }
     
-    // Método auxiliar para convertir a Response
-    private ProductResponse toResponse(Product product) {
+    /**
+     * Aplica un movimiento de stock con un UPDATE condicional, sin leer la entidad.
+     * El descuento solo se aplica si hay stock suficiente, evitando sobreventas
+     * y actualizaciones perdidas entre transacciones concurrentes.
+     */
+    private void applyStockDelta(Long id, StockUpdateRequest.StockOperation operation, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
+        }
+        
+        int updated = operation == StockUpdateRequest.StockOperation.ADD
+            ? productRepository.increaseStock(id, quantity)
+            : productRepository.decreaseStockIfAvailable(id, quantity);
+        
+        if (updated == 0) {
+            Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ProductNotFoundException("Producto no encontrado: " + id));
+            throw new InsufficientStockException(
+            "Stock insuficiente. Disponible: " + product.getStock() + ", Solicitado: " + quantity
+            );
+        }
+    }
+    
+    /**
+     * Los listeners (catálogo en memoria y su versión) actúan tras el commit
+     */
+    private void publishChanged(Set<Long> productIds) {
+        eventPublisher.publishEvent(new ProductChangedEvent(Set.copyOf(productIds)));
+    }
+    
+    private CursorPage<ProductSummary> summaries(String cursor, Integer size,
+                                                 BiFunction<Long, Integer, CursorPage<ProductResponse>> fromCatalog,
+                                                 BiFunction<Long, Limit, List<ProductSummary>> fromDatabase) {
+        int pageSize = CursorPage.clampSize(size);
+        long afterId = CursorPage.decode(cursor);
+        if (catalogReadModel.isReady()) {
+            return toSummaryPage(fromCatalog.apply(afterId, pageSize));
+        }
+        return readOnly.execute(() -> CursorPage.of(fromDatabase.apply(afterId, Limit.of(pageSize + 1)),
+            pageSize, ProductSummary::id, Function.identity()));
+    }
+    
+    private static CursorPage<ProductSummary> toSummaryPage(CursorPage<ProductResponse> page) {
+        List<ProductSummary> items = page.getItems().stream()
+            .map(ProductSummary::from)
+            .collect(Collectors.toList());
+        return new CursorPage<>(items, page.getNextCursor(), page.isHasMore());
+    }
+    
+    private CursorPage<ProductResponse> toPage(List<Product> rows, int pageSize) {
+        return CursorPage.of(rows, pageSize, Product::getId, ProductService::toResponse);
+    }
+    
+    // Método auxiliar para convertir a Response (también lo usa CatalogReadModel)
+    static ProductResponse toResponse(Product product) {
         ProductResponse response = new ProductResponse();
         response.setId(product.getId());
         response.setSku(product.getSku());
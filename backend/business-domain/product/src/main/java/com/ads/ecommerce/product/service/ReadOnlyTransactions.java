@@ -0,0 +1,28 @@
+package com.ads.ecommerce.product.service;
+
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Ejecuta consultas en una transacción propia de solo lectura.
+ * Los listados de ProductService no son transaccionales: con el catálogo en memoria
+ * cargado responden sin tocar la base de datos, y solo la consulta de respaldo
+ * (mientras el catálogo se carga) abre transacción y toma una conexión del pool.
+ */
+@Component
+public class ReadOnlyTransactions {
+    
+    private final TransactionTemplate transactionTemplate;
+    
+    public ReadOnlyTransactions(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+    
+    public <T> T execute(Supplier<T> query) {
+        return transactionTemplate.execute(status -> query.get());
+    }
+}
@@ -0,0 +1,211 @@
+package com.ads.ecommerce.product.config;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.ads.ecommerce.product.dto.ProductResponse;
+import com.ads.ecommerce.product.model.ProductCategory;
+import com.ads.ecommerce.product.repository.ProductRepository;
+import com.ads.ecommerce.product.service.ProductSearchIndex;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Benchmark de la búsqueda de productos (perfil "benchmark").
+ * Para cada tamaño de catálogo (100k y 1M por defecto) genera productos sintéticos
+ * con nombres y descripciones en castellano y compara, por consulta, el índice
+ * invertido (ProductSearchIndex) con un recorrido completo equivalente al
+ * LIKE '%term%' sobre el nombre.
+ * Con benchmark.search.database=true inserta además esos productos (SKU "BENCH-")
+ * en la base de datos configurada, mide la consulta LIKE real y los borra al terminar;
+ * conviene subir product.catalog.check-interval-ms para que el catálogo en memoria no
+ * se recargue durante la medición. Con 1M productos hacen falta varios GB de heap.
+ */
+@Slf4j
+@Component
+@Profile("benchmark")
+public class SearchBenchmarkRunner implements CommandLineRunner {
+    
+    private static final String[] NOUNS = {
+        "Camiseta", "Pantalón", "Zapatillas", "Mochila", "Cafetera", "Lámpara", "Sartén", "Teléfono",
+        "Auriculares", "Balón", "Muñeca", "Cuaderno", "Novela", "Almohada", "Chaqueta", "Reloj",
+        "Cargador", "Raqueta", "Bicicleta", "Aceite", "Galletas", "Estantería", "Colchón", "Canción"
+    };
+    private static final String[] ADJECTIVES = {
+        "térmica", "inalámbrico", "ergonómica", "clásico", "deportiva", "eléctrica", "ecológico",
+        "compacta", "recargable", "infantil", "premium", "básico", "plegable", "resistente"
+    };
+    private static final String[] MATERIALS = {
+        "algodón", "acero inoxidable", "madera", "cuero", "plástico reciclado", "aluminio", "lana", "cerámica"
+    };
+    private static final String[] COLORS = {
+        "negro", "blanco", "azul", "rojo", "verde", "gris", "marrón", "beige"
+    };
+    private static final String[] QUERIES = {
+        "cafetera", "lampara", "telef", "camiseta algodon", "zapatillas depor", "raqueta", "BENCH-12345"
+    };
+    
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final List<Integer> sizes;
+    private final int iterations;
+    private final boolean database;
+    private final int databaseIterations;
+    
+    public SearchBenchmarkRunner(ProductRepository productRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 @Value("${benchmark.search.sizes:100000,1000000}") List<Integer> sizes,
+                                 @Value("${benchmark.search.iterations:200}") int iterations,
+                                 @Value("${benchmark.search.database:false}") boolean database,
+                                 @Value("${benchmark.search.database-iterations:10}") int databaseIterations) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.sizes = sizes;
+        this.iterations = iterations;
+        this.database = database;
+        this.databaseIterations = databaseIterations;
+    }
+    
+    @Override
+    public void run(String... args) {
+        try {
+            int inserted = 0;
+            for (int size : sizes) {
+                List<ProductResponse> products = products(size);
+                
+                long start = System.nanoTime();
+                ProductSearchIndex index = new ProductSearchIndex();
+                products.forEach(index::put);
+                log.info("Benchmark de búsqueda: {} productos, índice de {} términos construido en {} ms",
+                    size, index.termCount(), (System.nanoTime() - start) / 1_000_000);
+                
+                if (database) {
+                    insert(products.subList(inserted, products.size()));
+                    inserted = products.size();
+                }
+                for (String query : QUERIES) {
+                    measure(size, query, index, products);
+                }
+            }
+        } finally {
+            if (database) {
+                int deleted = jdbcTemplate.update("DELETE FROM products WHERE sku LIKE 'BENCH-%'");
+                log.info("Benchmark de búsqueda: {} productos de prueba borrados", deleted);
+            }
+        }
+    }
+    
+    private void measure(int size, String query, ProductSearchIndex index, List<ProductResponse> products) {
+        String term = query.toLowerCase(Locale.ROOT);
+        int hits = index.search(query, 0, 51).size();
+        int scanHits = 0;
+        
+        // Calentamiento del JIT antes de medir
+        for (int i = 0; i < iterations / 10; i++) {
+            index.search(query, 0, 51);
+            scan(products, term);
+        }
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            index.search(query, 0, 51);
+        }
+        long indexNanos = System.nanoTime() - start;
+        
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            scanHits = scan(products, term);
+        }
+        long scanNanos = System.nanoTime() - start;
+        
+        String databaseResult = "";
+        if (database) {
+            start = System.nanoTime();
+            for (int i = 0; i < databaseIterations; i++) {
+                productRepository.searchPageByName(query, 0L, Limit.of(51));
+            }
+            databaseResult = String.format(", LIKE en base de datos %.2f ms",
+                (System.nanoTime() - start) / 1_000_000.0 / databaseIterations);
+        }
+        
+        log.info("[{} | \"{}\"] índice {} µs ({} resultados), recorrido LIKE {} µs ({} coincidencias){}",
+            size, query,
+            String.format("%.2f", indexNanos / 1000.0 / iterations), hits,
+            String.format("%.2f", scanNanos / 1000.0 / iterations), scanHits,
+            databaseResult);
+    }
+    
+    /**
+     * Lo que hace LOWER(name) LIKE LOWER('%term%'): comparar todas las filas, sin índice
+     */
+    private int scan(List<ProductResponse> products, String term) {
+        int matches = 0;
+        for (ProductResponse product : products) {
+            if (product.getName().toLowerCase(Locale.ROOT).contains(term)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+    
+    private void insert(List<ProductResponse> products) {
+        long start = System.nanoTime();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String sql = "INSERT INTO products (sku, name, description, price, stock, category, status, active, " +
+                     "created_at, updated_at, version) VALUES (?, ?, ?, ?, ?, ?, 'AVAILABLE', true, ?, ?, 0)";
+        for (int from = 0; from < products.size(); from += 1000) {
+            List<Object[]> rows = new ArrayList<>();
+            for (ProductResponse product : products.subList(from, Math.min(from + 1000, products.size()))) {
+                rows.add(new Object[] {
+                    product.getSku(), product.getName(), product.getDescription(), product.getPrice(),
+                    product.getStock(), product.getCategory().name(), now, now
+                });
+            }
+            jdbcTemplate.batchUpdate(sql, rows);
+        }
+        log.info("Benchmark de búsqueda: {} productos de prueba insertados en {} ms",
+            products.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    /**
+     * Productos sintéticos reproducibles: el mismo tamaño genera siempre los mismos
+     */
+    private List<ProductResponse> products(int count) {
+        Random random = new Random(42);
+        ProductCategory[] categories = ProductCategory.values();
+        List<ProductResponse> products = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            String noun = pick(random, NOUNS);
+            String name = noun + " " + pick(random, ADJECTIVES) + " " + pick(random, COLORS);
+            String description = noun + " de " + pick(random, MATERIALS) + ", " + pick(random, ADJECTIVES) +
+                                 " y " + pick(random, ADJECTIVES) + ". Color " + pick(random, COLORS) + ".";
+            
+            ProductResponse product = new ProductResponse();
+            product.setId((long) i);
+            product.setSku("BENCH-" + i);
+            product.setName(name);
+            product.setDescription(description);
+            product.setPrice(BigDecimal.valueOf(100 + random.nextInt(100_000), 2));
+            product.setStock(random.nextInt(100));
+            product.setCategory(categories[random.nextInt(categories.length)]);
+            products.add(product);
+        }
+        return products;
+    }
+    
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,123 @@
+package com.ads.ecommerce.product.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.ads.ecommerce.product.dto.CursorPage;
+import com.ads.ecommerce.product.dto.ProductResponse;
+import com.ads.ecommerce.product.model.ProductCategory;
+import com.ads.ecommerce.product.repository.ProductRepository;
+import com.ads.ecommerce.product.repository.ProductRepository.CatalogFingerprint;
+import com.ads.ecommerce.product.service.CatalogVersion;
+import com.ads.ecommerce.product.service.ProductService;
+
+/**
+ * La compresión la hace el servidor (server.compression.* de application.properties),
+ * así que se prueba contra un Tomcat real: un listado de más de 2048 bytes sale en
+ * gzip y con Vary: Accept-Encoding para que las cachés no mezclen representaciones
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                classes = ProductControllerCompressionTest.WebConfig.class)
+class ProductControllerCompressionTest {
+    
+    @LocalServerPort
+    private int port;
+    
+    @MockitoBean
+    private ProductService productService;
+    
+    @MockitoBean
+    private ProductRepository productRepository;
+    
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    
+    @BeforeEach
+    void setUp() {
+        CatalogFingerprint fingerprint = mock(CatalogFingerprint.class);
+        when(fingerprint.getRowCount()).thenReturn(50L);
+        when(fingerprint.getVersionSum()).thenReturn(50L);
+        when(fingerprint.getMaxId()).thenReturn(50L);
+        when(productRepository.catalogFingerprint()).thenReturn(fingerprint);
+        when(productService.getAllProducts(any(), any())).thenReturn(page(50));
+    }
+    
+    @Test
+    void largeListIsGzippedAndVariesByEncoding() throws Exception {
+        HttpResponse<byte[]> response = get("/api/v1/products");
+        
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        assertThat(response.headers().allValues(HttpHeaders.VARY))
+            .anySatisfy(vary -> assertThat(vary).containsIgnoringCase("Accept-Encoding"))
+            .anySatisfy(vary -> assertThat(vary).containsIgnoringCase("Accept"));
+        try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertThat(body.readAllBytes().length).isGreaterThan(2048);
+        }
+    }
+    
+    private HttpResponse<byte[]> get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+            .header(HttpHeaders.ACCEPT, "application/json")
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+            .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+    
+    private static CursorPage<ProductResponse> page(int count) {
+        List<ProductResponse> products = LongStream.rangeClosed(1, count)
+            .mapToObj(id -> {
+                ProductResponse product = new ProductResponse();
+                product.setId(id);
+                product.setSku("SKU-" + id);
+                product.setName("Producto de prueba " + id);
+                product.setDescription("Descripción del producto de prueba número " + id);
+                product.setPrice(new BigDecimal("10.00"));
+                product.setCategory(ProductCategory.BOOKS);
+                return product;
+            })
+            .toList();
+        return CursorPage.of(products, count, ProductResponse::getId, p -> p);
+    }
+    
+    /**
+     * Solo el servidor web, MVC y el controlador: sin base de datos ni Eureka
+     */
+    @Configuration
+    @ImportAutoConfiguration({
+        ServletWebServerFactoryAutoConfiguration.class,
+        DispatcherServletAutoConfiguration.class,
+        WebMvcAutoConfiguration.class,
+        HttpMessageConvertersAutoConfiguration.class,
+        JacksonAutoConfiguration.class
+    })
+    @Import({ProductController.class, CatalogVersion.class})
+    static class WebConfig {
+    }
+}
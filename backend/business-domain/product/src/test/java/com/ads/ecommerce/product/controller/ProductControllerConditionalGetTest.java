@@ -0,0 +1,129 @@
+package com.ads.ecommerce.product.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.ads.ecommerce.product.dto.CursorPage;
+import com.ads.ecommerce.product.dto.ProductResponse;
+import com.ads.ecommerce.product.model.ProductCategory;
+import com.ads.ecommerce.product.repository.ProductRepository;
+import com.ads.ecommerce.product.repository.ProductRepository.CatalogFingerprint;
+import com.ads.ecommerce.product.service.CatalogVersion;
+import com.ads.ecommerce.product.service.ProductService;
+
+/**
+ * Los sondeos repetidos de los listados con If-None-Match se responden con 304
+ * sin llamar al servicio (ni SQL ni serialización) mientras el catálogo no cambie.
+ * El catálogo en memoria no está cargado: el ETag sale de la huella de la tabla.
+ */
+@WebMvcTest(ProductController.class)
+@Import(CatalogVersion.class)
+class ProductControllerConditionalGetTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private CatalogVersion catalogVersion;
+    
+    @MockitoBean
+    private ProductService productService;
+    
+    @MockitoBean
+    private ProductRepository productRepository;
+    
+    @BeforeEach
+    void setUp() {
+        ProductResponse product = new ProductResponse();
+        product.setId(1L);
+        product.setSku("SKU-1");
+        product.setName("Producto");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setCategory(ProductCategory.BOOKS);
+        CursorPage<ProductResponse> page = CursorPage.of(List.of(product), 20, ProductResponse::getId, p -> p);
+        
+        when(productService.getAllProducts(any(), any())).thenReturn(page);
+        when(productService.getAvailableProducts(any(), any())).thenReturn(page);
+        when(productService.getProductsByCategory(eq(ProductCategory.BOOKS), any(), any())).thenReturn(page);
+        when(productRepository.catalogFingerprint()).thenReturn(new Fingerprint(1L, 1L, 1L));
+    }
+    
+    @Test
+    void repeatedPollReturnsNotModifiedWithoutQueryingOrSerializing() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/products"))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/v1/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(content().string(""));
+        }
+        
+        verify(productService, times(1)).getAllProducts(any(), any());
+        verifyNoMoreInteractions(productService);
+    }
+    
+    @Test
+    void availableAndCategoryListsAreConditionalToo() throws Exception {
+        String etag = catalogVersion.etag();
+        
+        mockMvc.perform(get("/api/v1/products").param("available", "true").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/v1/products/category/BOOKS").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+        
+        verifyNoInteractions(productService);
+    }
+    
+    @Test
+    void productChangeInvalidatesEtag() throws Exception {
+        String etag = catalogVersion.etag();
+        
+        when(productRepository.catalogFingerprint()).thenReturn(new Fingerprint(1L, 2L, 1L));
+        
+        mockMvc.perform(get("/api/v1/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, catalogVersion.etag()));
+        assertThat(catalogVersion.etag()).isNotEqualTo(etag);
+        verify(productService, times(1)).getAllProducts(any(), any());
+    }
+    
+    @Test
+    void instancesWithTheSameDataShareTheEtagWhetherLoadedOrNot() {
+        CatalogVersion loaded = new CatalogVersion(productRepository);
+        loaded.sync(1L, 1L, 1L);
+        
+        assertThat(loaded.etag()).isEqualTo(catalogVersion.etag());
+    }
+    
+    private record Fingerprint(Long getRowCount, Long getVersionSum, Long getMaxId)
+        implements CatalogFingerprint {
+    }
+}
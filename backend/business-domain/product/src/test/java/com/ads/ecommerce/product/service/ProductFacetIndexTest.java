@@ -0,0 +1,279 @@
+package com.ads.ecommerce.product.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+
+import com.ads.ecommerce.product.dto.ProductFacetCounts;
+import com.ads.ecommerce.product.dto.ProductFacetRequest;
+import com.ads.ecommerce.product.dto.ProductResponse;
+import com.ads.ecommerce.product.model.ProductCategory;
+import com.ads.ecommerce.product.model.ProductStatus;
+import com.ads.ecommerce.product.service.ProductFacetIndex.FacetResult;
+
+/**
+ * Tramos de precio, recuentos disyuntivos, paginación por ID y una comprobación
+ * aleatoria contra un filtro por fuerza bruta
+ */
+class ProductFacetIndexTest {
+    
+    private static final List<BigDecimal> BOUNDS = List.of(new BigDecimal("10"), new BigDecimal("25"));
+    
+    private final ProductFacetIndex index = new ProductFacetIndex(BOUNDS);
+    
+    @Test
+    void priceOnABoundFallsInTheUpperRange() {
+        index.put(product(1L, ProductCategory.BOOKS, ProductStatus.AVAILABLE, "9.99", true, true, false));
+        index.put(product(2L, ProductCategory.BOOKS, ProductStatus.AVAILABLE, "10.00", true, true, false));
+        index.put(product(3L, ProductCategory.BOOKS, ProductStatus.AVAILABLE, "24.99", true, true, false));
+        index.put(product(4L, ProductCategory.BOOKS, ProductStatus.AVAILABLE, "25", true, true, false));
+        index.put(product(5L, ProductCategory.BOOKS, ProductStatus.AVAILABLE, "0", true, true, false));
+        
+        assertThat(index.query(request(), 0, 10).counts().getPriceRanges())
+            .containsExactly(Map.entry("0-10", 2), Map.entry("10-25", 2), Map.entry("25+", 1));
+    }
+    
+    @Test
+    void priceRangeIncludesBothEnds() {
+        index.put(product(1L, ProductCategory.BOOKS, ProductStatus.AVAILABLE, "9.99", true, true, false));
+        index.put(product(2L, ProductCategory.BOOKS, ProductStatus.AVAILABLE, "10", true, true, false));
+        index.put(product(3L, ProductCategory.BOOKS, ProductStatus.AVAILABLE, "17.50", true, true, false));
+        index.put(product(4L, ProductCategory.BOOKS, ProductStatus.AVAILABLE, "25", true, true, false));
+        index.put(product(5L, ProductCategory.BOOKS, ProductStatus.AVAILABLE, "25.01", true, true, false));
+        
+        assertThat(index.query(priced("10", "25"), 0, 10).ids()).containsExactly(2L, 3L, 4L);
+        assertThat(index.query(priced("9.995", "17.50"), 0, 10).ids()).containsExactly(2L, 3L);
+        assertThat(index.query(priced("25", null), 0, 10).ids()).containsExactly(4L, 5L);
+        assertThat(index.query(priced(null, "9.99"), 0, 10).ids()).containsExactly(1L);
+        assertThat(index.query(priced("30", null), 0, 10).total()).isZero();
+    }
+    
+    @Test
+    void eachFacetIsCountedWithoutItsOwnFilter() {
+        index.put(product(1L, ProductCategory.BOOKS, ProductStatus.AVAILABLE, "5", true, true, false));
+        index.put(product(2L, ProductCategory.BOOKS, ProductStatus.OUT_OF_STOCK, "15", true, false, true));
+        index.put(product(3L, ProductCategory.TOYS, ProductStatus.AVAILABLE, "30", true, true, true));
+        index.put(product(4L, ProductCategory.TOYS, ProductStatus.AVAILABLE, "8", false, true, false));
+        index.put(product(5L, ProductCategory.FOOD, ProductStatus.DISCONTINUED, "12", true, false, false));
+        
+        ProductFacetRequest request = request();
+        request.setCategories(List.of(ProductCategory.BOOKS));
+        request.setStatuses(List.of(ProductStatus.AVAILABLE));
+        request.setActive(true);
+        FacetResult result = index.query(request, 0, 10);
+        
+        assertThat(result.ids()).containsExactly(1L);
+        assertThat(result.total()).isEqualTo(1);
+        ProductFacetCounts counts = result.counts();
+        // Sin el filtro de categoría: activos y disponibles, 1 y 3
+        assertThat(counts.getCategories())
+            .containsEntry(ProductCategory.BOOKS, 1)
+            .containsEntry(ProductCategory.TOYS, 1)
+            .containsEntry(ProductCategory.FOOD, 0);
+        // Sin el filtro de estado: libros activos, 1 y 2
+        assertThat(counts.getStatuses())
+            .containsEntry(ProductStatus.AVAILABLE, 1)
+            .containsEntry(ProductStatus.OUT_OF_STOCK, 1)
+            .containsEntry(ProductStatus.DISCONTINUED, 0);
+        // Sin el filtro de activo: libros disponibles, solo 1
+        assertThat(counts.getActive()).isEqualTo(1);
+        // Los que no se filtran se cuentan sobre el resultado completo
+        assertThat(counts.getAvailable()).isEqualTo(1);
+        assertThat(counts.getLowStock()).isZero();
+        assertThat(counts.getPriceRanges()).containsEntry("0-10", 1).containsEntry("10-25", 0);
+    }
+    
+    @Test
+    void falseFlagSelectsTheProductsWithoutIt() {
+        index.put(product(1L, ProductCategory.HOME, ProductStatus.AVAILABLE, "5", true, true, false));
+        index.put(product(2L, ProductCategory.HOME, ProductStatus.AVAILABLE, "5", false, true, false));
+        
+        ProductFacetRequest request = request();
+        request.setActive(false);
+        
+        assertThat(index.query(request, 0, 10).ids()).containsExactly(2L);
+        assertThat(index.query(request, 0, 10).counts().getActive()).isEqualTo(1);
+    }
+    
+    @Test
+    void pagesFollowTheIdAndReturnOneExtraRow() {
+        for (long id = 1; id <= 5; id++) {
+            index.put(product(id, ProductCategory.SPORTS, ProductStatus.AVAILABLE, "5", true, true, false));
+        }
+        
+        assertThat(index.query(request(), 0, 2).ids()).containsExactly(1L, 2L, 3L);
+        assertThat(index.query(request(), 2, 2).ids()).containsExactly(3L, 4L, 5L);
+        assertThat(index.query(request(), 4, 2).ids()).containsExactly(5L);
+        assertThat(index.query(request(), 5, 2).ids()).isEmpty();
+        assertThat(index.query(request(), 4, 2).total()).isEqualTo(5);
+    }
+    
+    @Test
+    void reindexingMovesTheProductAndRemoveDropsIt() {
+        index.put(product(1L, ProductCategory.BOOKS, ProductStatus.AVAILABLE, "5", true, true, true));
+        index.put(product(1L, ProductCategory.TOYS, ProductStatus.OUT_OF_STOCK, "30", false, false, false));
+        
+        ProductFacetCounts counts = index.query(request(), 0, 10).counts();
+        assertThat(counts.getCategories()).containsEntry(ProductCategory.BOOKS, 0).containsEntry(ProductCategory.TOYS, 1);
+        assertThat(counts.getPriceRanges()).containsEntry("0-10", 0).containsEntry("25+", 1);
+        assertThat(counts.getActive()).isZero();
+        assertThat(counts.getLowStock()).isZero();
+        
+        index.remove(1L);
+        
+        assertThat(index.query(request(), 0, 10).total()).isZero();
+        assertThat(index.query(request(), 0, 10).counts().getCategories().values()).containsOnly(0);
+    }
+    
+    @Test
+    void matchesBruteForceOnRandomCatalogs() {
+        List<BigDecimal> bounds = List.of(new BigDecimal("10"), new BigDecimal("25"), new BigDecimal("50"));
+        String[] prices = {"0", "5", "9.99", "10", "10.01", "24.99", "25", "30", "50", "75.5"};
+        ProductCategory[] categories = ProductCategory.values();
+        ProductStatus[] statuses = ProductStatus.values();
+        Random random = new Random(7);
+        
+        for (int round = 0; round < 50; round++) {
+            ProductFacetIndex index = new ProductFacetIndex(bounds);
+            Map<Long, ProductResponse> catalog = new TreeMap<>();
+            for (int n = 0; n < 120; n++) {
+                long id = 1 + random.nextInt(100);
+                if (random.nextInt(10) == 0) {
+                    index.remove(id);
+                    catalog.remove(id);
+                    continue;
+                }
+                ProductResponse product = product(id, categories[random.nextInt(categories.length)],
+                    statuses[random.nextInt(statuses.length)], prices[random.nextInt(prices.length)],
+                    random.nextBoolean(), random.nextBoolean(), random.nextBoolean());
+                index.put(product);
+                catalog.put(id, product);
+            }
+            
+            for (int q = 0; q < 30; q++) {
+                ProductFacetRequest request = new ProductFacetRequest(
+                    random.nextBoolean() ? null : sample(categories, random),
+                    random.nextBoolean() ? null : sample(statuses, random),
+                    flag(random), flag(random), flag(random),
+                    random.nextBoolean() ? null : new BigDecimal(prices[random.nextInt(prices.length)]),
+                    random.nextBoolean() ? null : new BigDecimal(prices[random.nextInt(prices.length)]));
+                long afterId = random.nextInt(100);
+                int pageSize = 1 + random.nextInt(20);
+                
+                FacetResult result = index.query(request, afterId, pageSize);
+                
+                List<ProductResponse> matches = filter(catalog, request, -1);
+                assertThat(result.total()).as("%s", request).isEqualTo(matches.size());
+                assertThat(result.ids()).as("%s", request).containsExactlyElementsOf(matches.stream()
+                    .map(ProductResponse::getId).filter(id -> id > afterId).limit(pageSize + 1).toList());
+                assertThat(result.counts()).as("%s", request).isEqualTo(bruteForceCounts(catalog, request, bounds));
+            }
+        }
+    }
+    
+    private static ProductFacetCounts bruteForceCounts(Map<Long, ProductResponse> catalog,
+                                                       ProductFacetRequest request, List<BigDecimal> bounds) {
+        Map<ProductCategory, Integer> categories = new LinkedHashMap<>();
+        for (ProductCategory category : ProductCategory.values()) {
+            categories.put(category, count(filter(catalog, request, 0), p -> p.getCategory() == category));
+        }
+        Map<ProductStatus, Integer> statuses = new LinkedHashMap<>();
+        for (ProductStatus status : ProductStatus.values()) {
+            statuses.put(status, count(filter(catalog, request, 1), p -> p.getStatus() == status));
+        }
+        Map<String, Integer> priceRanges = new LinkedHashMap<>();
+        BigDecimal lower = BigDecimal.ZERO;
+        for (int i = 0; i <= bounds.size(); i++) {
+            BigDecimal from = lower;
+            BigDecimal to = i < bounds.size() ? bounds.get(i) : null;
+            priceRanges.put(to == null ? from.toPlainString() + "+" : from.toPlainString() + "-" + to.toPlainString(),
+                count(filter(catalog, request, 5), p -> (from.signum() == 0 || p.getPrice().compareTo(from) >= 0)
+                    && (to == null || p.getPrice().compareTo(to) < 0)));
+            lower = to;
+        }
+        return new ProductFacetCounts(categories, statuses, priceRanges,
+            count(filter(catalog, request, 2), ProductResponse::getActive),
+            count(filter(catalog, request, 3), ProductResponse::getAvailable),
+            count(filter(catalog, request, 4), ProductResponse::getLowStock));
+    }
+    
+    /**
+     * Productos que cumplen todos los filtros salvo el de la posición skip
+     * (el mismo orden que usa el índice; -1: todos), ordenados por ID
+     */
+    private static List<ProductResponse> filter(Map<Long, ProductResponse> catalog, ProductFacetRequest request,
+                                                int skip) {
+        List<ProductResponse> result = new ArrayList<>();
+        for (ProductResponse p : catalog.values()) {
+            boolean matches = (skip == 0 || isEmpty(request.getCategories())
+                    || request.getCategories().contains(p.getCategory()))
+                && (skip == 1 || isEmpty(request.getStatuses()) || request.getStatuses().contains(p.getStatus()))
+                && (skip == 2 || request.getActive() == null || request.getActive().equals(p.getActive()))
+                && (skip == 3 || request.getAvailable() == null || request.getAvailable().equals(p.getAvailable()))
+                && (skip == 4 || request.getLowStock() == null || request.getLowStock().equals(p.getLowStock()))
+                && (skip == 5 || request.getMinPrice() == null || p.getPrice().compareTo(request.getMinPrice()) >= 0)
+                && (skip == 5 || request.getMaxPrice() == null || p.getPrice().compareTo(request.getMaxPrice()) <= 0);
+            if (matches) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+    
+    // Una lista vacía, como null, no filtra
+    private static boolean isEmpty(List<?> values) {
+        return values == null || values.isEmpty();
+    }
+    
+    private static int count(List<ProductResponse> products, Predicate<ProductResponse> predicate) {
+        return (int) products.stream().filter(predicate).count();
+    }
+    
+    private static <E> List<E> sample(E[] values, Random random) {
+        List<E> sample = new ArrayList<>();
+        for (E value : values) {
+            if (random.nextInt(3) == 0) {
+                sample.add(value);
+            }
+        }
+        return sample;
+    }
+    
+    private static Boolean flag(Random random) {
+        int value = random.nextInt(3);
+        return value == 0 ? null : value == 1;
+    }
+    
+    private static ProductFacetRequest request() {
+        return new ProductFacetRequest();
+    }
+    
+    private static ProductFacetRequest priced(String minPrice, String maxPrice) {
+        ProductFacetRequest request = request();
+        request.setMinPrice(minPrice == null ? null : new BigDecimal(minPrice));
+        request.setMaxPrice(maxPrice == null ? null : new BigDecimal(maxPrice));
+        return request;
+    }
+    
+    private static ProductResponse product(Long id, ProductCategory category, ProductStatus status, String price,
+                                           boolean active, boolean available, boolean lowStock) {
+        ProductResponse product = new ProductResponse();
+        product.setId(id);
+        product.setCategory(category);
+        product.setStatus(status);
+        product.setPrice(new BigDecimal(price));
+        product.setActive(active);
+        product.setAvailable(available);
+        product.setLowStock(lowStock);
+        return product;
+    }
+}
@@ -0,0 +1,202 @@
+package com.ads.ecommerce.product.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.ads.ecommerce.product.dto.ProductResponse;
+
+/**
+ * Búsqueda por prefijo, plegado de tildes, relevancia y mantenimiento del índice,
+ * y una comprobación aleatoria contra un filtro por fuerza bruta
+ */
+class ProductSearchIndexTest {
+    
+    private final ProductSearchIndex index = new ProductSearchIndex();
+    
+    @Test
+    void everyWordMatchesTermsStartingWithIt() {
+        index.put(product(1L, "KB-1", "Teclado mecánico", "Interruptores azules"));
+        index.put(product(2L, "MS-1", "Ratón inalámbrico", "Con teclas laterales"));
+        index.put(product(3L, "MN-1", "Monitor", "Pantalla de 27 pulgadas"));
+        
+        assertThat(index.search("tecl", 0, 10)).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.search("tecl mec", 0, 10)).containsExactly(1L);
+        assertThat(index.search("tecl monitor", 0, 10)).isEmpty();
+        assertThat(index.search("xyz", 0, 10)).isEmpty();
+        assertThat(index.search("", 0, 10)).isEmpty();
+    }
+    
+    @Test
+    void singleLetterOnlyMatchesTheWholeTerm() {
+        index.put(product(1L, "A-1", "Cable tipo C", null));
+        index.put(product(2L, "A-2", "Cargador", null));
+        
+        assertThat(index.search("c", 0, 10)).containsExactly(1L);
+        assertThat(index.search("ca", 0, 10)).containsExactlyInAnyOrder(1L, 2L);
+    }
+    
+    @Test
+    void accentsCaseAndSeparatorsAreFolded() {
+        index.put(product(1L, "LB-1", "Canción de cuna", "Libro para NIÑOS"));
+        
+        assertThat(index.search("cancion", 0, 10)).containsExactly(1L);
+        assertThat(index.search("CANCIÓN", 0, 10)).containsExactly(1L);
+        assertThat(index.search("ninos", 0, 10)).containsExactly(1L);
+        assertThat(index.search("cuna,  libro", 0, 10)).containsExactly(1L);
+        assertThat(ProductSearchIndex.fold("  Pingüino-Ñandú! ")).isEqualTo("pinguino nandu");
+    }
+    
+    @Test
+    void skuRanksAboveNameAboveDescriptionAndWholeTermsAbovePrefixes() {
+        index.put(product(1L, "P-1", "Funda", "Compatible con lampara"));
+        index.put(product(2L, "P-2", "Lampara de mesa", null));
+        index.put(product(3L, "LAMPARA-3", "Bombilla", null));
+        index.put(product(4L, "P-4", "Lamparas solares", null));
+        
+        assertThat(index.search("lampara", 0, 10)).containsExactly(3L, 2L, 4L, 1L);
+    }
+    
+    @Test
+    void exactSkuComesFirstWithOrWithoutSeparators() {
+        index.put(product(1L, "ABC-123", "Adaptador", null));
+        index.put(product(2L, "X-9", "Abc 123 compatible", "abc123"));
+        
+        assertThat(index.search("abc123", 0, 10)).containsExactly(1L, 2L);
+        assertThat(index.search("ABC-123", 0, 10).get(0)).isEqualTo(1L);
+    }
+    
+    @Test
+    void equalScoresAreOrderedByIdAndPaged() {
+        for (long id = 5; id >= 1; id--) {
+            index.put(product(id, "S-" + id, "Silla", null));
+        }
+        
+        assertThat(index.search("silla", 0, 2)).containsExactly(1L, 2L);
+        assertThat(index.search("silla", 2, 2)).containsExactly(3L, 4L);
+        assertThat(index.search("silla", 4, 2)).containsExactly(5L);
+    }
+    
+    @Test
+    void reindexingDropsOldTermsAndRemoveForgetsTheProduct() {
+        index.put(product(1L, "OLD-1", "Mesa", null));
+        index.put(product(1L, "NEW-1", "Silla", null));
+        
+        assertThat(index.search("mesa", 0, 10)).isEmpty();
+        assertThat(index.search("old1", 0, 10)).isEmpty();
+        assertThat(index.search("silla", 0, 10)).containsExactly(1L);
+        assertThat(index.search("new1", 0, 10)).containsExactly(1L);
+        
+        index.remove(1L);
+        
+        assertThat(index.search("silla", 0, 10)).isEmpty();
+        assertThat(index.search("new1", 0, 10)).isEmpty();
+        assertThat(index.termCount()).isZero();
+    }
+    
+    @Test
+    void matchesBruteForceOnRandomCatalogs() {
+        String[] vocabulary = {"mesa", "mesita", "meson", "silla", "sillón", "lámpara", "lampara", "cable",
+                               "cargador", "carga", "niño", "nino", "a", "ab", "abc", "b"};
+        Random random = new Random(42);
+        
+        for (int round = 0; round < 50; round++) {
+            ProductSearchIndex index = new ProductSearchIndex();
+            Map<Long, ProductResponse> catalog = new HashMap<>();
+            for (int n = 0; n < 60; n++) {
+                long id = 1 + random.nextInt(40);
+                if (random.nextInt(10) == 0) {
+                    index.remove(id);
+                    catalog.remove(id);
+                    continue;
+                }
+                ProductResponse product = product(id, "SKU-" + id,
+                    words(vocabulary, random, 1 + random.nextInt(3)),
+                    random.nextBoolean() ? words(vocabulary, random, random.nextInt(4)) : null);
+                index.put(product);
+                catalog.put(id, product);
+            }
+            
+            for (int q = 0; q < 40; q++) {
+                String query = queryWords(vocabulary, random);
+                assertThat(index.search(query, 0, 1000))
+                    .as("query '%s'", query)
+                    .containsExactlyElementsOf(bruteForce(catalog, query));
+            }
+        }
+    }
+    
+    /**
+     * Misma regla escrita de la forma más directa: cada palabra casa con un término igual
+     * (o que empieza por ella, si tiene dos letras o más) y suma su mejor campo
+     */
+    private static List<Long> bruteForce(Map<Long, ProductResponse> catalog, String query) {
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(ProductSearchIndex.tokens(query)));
+        Map<Long, Integer> scores = new HashMap<>();
+        for (ProductResponse product : catalog.values()) {
+            Map<String, Integer> fields = new HashMap<>();
+            ProductSearchIndex.tokens(product.getSku()).forEach(term -> fields.merge(term, 8, (a, b) -> a | b));
+            ProductSearchIndex.tokens(product.getName()).forEach(term -> fields.merge(term, 4, (a, b) -> a | b));
+            ProductSearchIndex.tokens(product.getDescription()).forEach(term -> fields.merge(term, 1, (a, b) -> a | b));
+            
+            int total = 0;
+            boolean all = !words.isEmpty();
+            for (String word : words) {
+                int best = 0;
+                for (Map.Entry<String, Integer> term : fields.entrySet()) {
+                    if (term.getKey().equals(word)) {
+                        best = Math.max(best, term.getValue() * 2);
+                    } else if (word.length() >= 2 && term.getKey().startsWith(word)) {
+                        best = Math.max(best, term.getValue());
+                    }
+                }
+                all &= best > 0;
+                total += best;
+            }
+            if (all) {
+                scores.put(product.getId(), total);
+            }
+        }
+        return scores.entrySet().stream()
+            .sorted(Comparator.<Map.Entry<Long, Integer>>comparingInt(Map.Entry::getValue).reversed()
+                .thenComparing(Map.Entry::getKey))
+            .map(Map.Entry::getKey)
+            .toList();
+    }
+    
+    private static String words(String[] vocabulary, Random random, int count) {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            words.add(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return String.join(" ", words);
+    }
+    
+    // Palabras del vocabulario recortadas a un prefijo, con mayúsculas de vez en cuando
+    private static String queryWords(String[] vocabulary, Random random) {
+        List<String> words = new ArrayList<>();
+        for (int i = 0, count = 1 + random.nextInt(2); i < count; i++) {
+            String word = vocabulary[random.nextInt(vocabulary.length)];
+            word = word.substring(0, 1 + random.nextInt(word.length()));
+            words.add(random.nextInt(4) == 0 ? word.toUpperCase() : word);
+        }
+        return String.join(" ", words);
+    }
+    
+    private static ProductResponse product(Long id, String sku, String name, String description) {
+        ProductResponse product = new ProductResponse();
+        product.setId(id);
+        product.setSku(sku);
+        product.setName(name);
+        product.setDescription(description);
+        return product;
+    }
+}